@@ -1,34 +1,107 @@
+import java.util.Arrays;
+
 // Ant class stores its startingNode, the tabuList, the path of the tour and its currentNode
 public class Ant {
     private int[] path; // ant path through the TSP space
-    private int[] visited; // the visited nodes of the ant, we put a 1 if it's visited those
+    private long[] visited; // bitset of the visited nodes of the ant, bit i is set once node i is visited
     private int startNode;
     private int count = 0; // counts the number of nodes visited so far
     private int order = 0; // the number corresponds to the order visited
     private int currentNode;
+    private double tourLength = 0; // length of the path so far, the closed tour's length once closeTour is called
+    private RandomSource random; // the ant's own random stream, reseeded by the AntSystem every cycle
 
     //constructor
     Ant(int size, int startNode) { // size is the size of the input list of nodes, the number of nodes in the TSP
        path = new int[size];
-       visited = new int[size];
+       visited = new long[(size + 63) >>> 6];
        this.startNode = startNode;
        this.currentNode = startNode;
     }
 
-    // visit the next node
+    // puts the ant back on startNode with an empty tour so it can be reused in the next cycle
+    public void reset(int startNode) {
+        Arrays.fill(visited, 0L);
+        this.startNode = startNode;
+        this.count = 0;
+        this.tourLength = 0;
+        visitNode(startNode);
+    }
+
+    // visit the next node -- sets it as the currentNode, marks it visited and adds it to the path
     public void visitNode(int node) {
+        currentNode = node;
+        visited[node >>> 6] |= 1L << node;
+        path[count] = node;
+        count++;
     }
 
-    public int getStartNode() {
-        return startNode;
+    // visit the next node, distance is the length of the edge from the currentNode to it
+    public void visitNode(int node, double distance) {
+        tourLength += distance;
+        visitNode(node);
+    }
+
+    // adds the edge from the last node back to the startNode once every node is visited
+    public void closeTour(double distance) {
+        tourLength += distance;
+    }
+
+    // length of the tour -- the edges added so far in the order they were walked, so once the tour is closed
+    // it's the same value AntSystem.pathLength works out
+    public double getTourLength() {
+        return tourLength;
     }
 
-    public int[] getVisited() {
-        return visited;
+    // the finished tour was rearranged in place in path, eg by a LocalSearch -- it starts at path[0] now
+    public void tourChanged(double tourLength) {
+        this.tourLength = tourLength;
+        startNode = path[0];
+        currentNode = path[count - 1];
     }
 
-    public void setVisited(int[] visited) {
-        this.visited = visited;
+    // true if the ant has already visited node
+    public boolean isVisited(int node) {
+        return (visited[node >>> 6] & (1L << node)) != 0;
+    }
+
+    // copies the tour of other into this ant, used to keep a best-so-far ant past the cycle that found it
+    public void copyFrom(Ant other) {
+        System.arraycopy(other.path, 0, path, 0, path.length);
+        System.arraycopy(other.visited, 0, visited, 0, visited.length);
+        startNode = other.startNode;
+        currentNode = other.currentNode;
+        count = other.count;
+        tourLength = other.tourLength;
+    }
+
+    // copies a tour kept in a Result into this ant, the path is walked again so the visited set and the count
+    // match -- the ant must be the size of the tour
+    public void copyFrom(Result result) {
+        reset(result.getNode(0));
+        for(int i = 1; i < result.getSize(); i++) {
+            visitNode(result.getNode(i));
+        }
+        tourLength = result.getLength();
+    }
+
+    // gives the ant its own random stream -- each ant has its own so the tour it builds doesn't depend on which thread runs it
+    public void setRandom(RandomSource random) {
+        this.random = random;
+    }
+
+    // reseeds the ant's random stream
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    // next uniform sample in [0, 1) from the ant's stream
+    public double nextRandom() {
+        return random.nextDouble();
+    }
+
+    public int getStartNode() {
+        return startNode;
     }
 
     public int[] getPath() {
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 public class AntCycle extends AntSystem{
     float evaporationParam;
     double pherParam; // param for pheromone laying equation -- 4 works well
+    private final DepositBuffer deposits = new DepositBuffer(); // the cycle's pheromone, applied all at once
 
     //constructor
     public AntCycle(TSP tsp, float alpha, float beta, float evaporationParam, double pherParam) {
@@ -14,80 +15,114 @@ public class AntCycle extends AntSystem{
         this.pherParam = pherParam;
     }
 
+    // constructor with a fixed seed
+    public AntCycle(TSP tsp, float alpha, float beta, float evaporationParam, double pherParam, long seed) {
+        this(tsp, alpha, beta, evaporationParam, pherParam, seed, "splitmix");
+    }
+
+    // constructor with a fixed seed and the kind of random source, see RandomSource.create
+    public AntCycle(TSP tsp, float alpha, float beta, float evaporationParam, double pherParam, long seed, String randomSource) {
+        super(tsp, alpha, beta, seed, randomSource);
+        this.evaporationParam = evaporationParam;
+        this.pherParam = pherParam;
+    }
+
     // evaporate some amount of the pheromone off all edges of the TSP, rate is a percentage ie 0.05 is 5%
     protected void evaporate(TSP tspInstance, float rate) {
-        // decrease all pheromone on all edges by rate amount
-        for(int i = 0; i < tspInstance.getSize(); i++) {
-            for(int j = 0; j < tspInstance.getSize(); j++) {
-                tspInstance.getNodePheromone()[i][j] = tspInstance.getNodePheromone()[i][j]*(1.0f - rate);
-            }
-        }
+        // decrease all pheromone on all edges by rate amount -- one sweep over a dense matrix, O(1) for a sparse one
+        tspInstance.getNodePheromone().scale(1.0f - rate);
     }
 
     // cycle runs ants on the TSP and updates pheromone with solutions/tours
     private double cyclePrivate() {
+        cycleStarted();
         // initialize ants
         ArrayList<Ant> ants = initializeAnts(tspInstance);
 
         // tracks shortestTour of the cycle
-        double shortestTour = 1000000;
-        int shortestTourIndex = 0;
+        double shortestTour = Double.MAX_VALUE;
 
         // run solver
         findSolutions(tspInstance, ants); // find tours of all ants
+        phaseDone(CycleMetrics.Phase.CONSTRUCTION);
+        improveTours(tspInstance, ants); // local search on the tours, if the system has any
+        phaseDone(CycleMetrics.Phase.LOCAL_SEARCH);
 
         // iterate through ants list and find shortestTour
         for(int i = 0; i < ants.size(); i++) {
-            Ant anty = ants.get(i);
-            double pathLen = pathLength(tspInstance, anty);
+            double pathLen = ants.get(i).getTourLength();
 
             // find shortestTour
             if(pathLen < shortestTour) {
                 shortestTour = pathLen;
-                shortestTourIndex = i;
             }
         }
 
-        // lay pheromone based on shortestTour
-        Ant shortestAnt = ants.get(shortestTourIndex);
+        phaseDone(CycleMetrics.Phase.EVALUATION);
 
-        // we lay down pheromone for each ant solution found
+        // we lay down pheromone for each ant solution found, pheromone = pherParam/lengthOfPath for all antTours
         for(int i = 0; i < ants.size(); i++) {
-            Ant currentAnt = ants.get(i); // grab ant form ants
-            double currentTourLength = pathLength(tspInstance, currentAnt); // get the tourLength of the currentAnt
-
-            // go through path of ant and lay down pheromone onto TSP pheromone = pherParam/lengthOfPath for all antTours
-            for(int k = 0; k < currentAnt.getPath().length; k++) {
-                // if last node, then get edge that goes from currentNode to startingNode
-                if (k == currentAnt.getPath().length - 1) {
-                    int currentNode = currentAnt.getPath()[k];
-                    int nextNode = currentAnt.getPath()[0];
-                    double currentPher = tspInstance.getNodePheromone()[currentNode][nextNode];  // grab pheromone
-                    currentPher = currentPher + (pherParam/currentTourLength); // update pheromone
-                    tspInstance.getNodePheromone()[currentNode][nextNode] = currentPher;
-                } else { // grab nextNode in the path
-                    int currentNode = currentAnt.getPath()[k];
-                    int nextNode = currentAnt.getPath()[k+1];
-                    double currentPher = tspInstance.getNodePheromone()[currentNode][nextNode];  // grab pheromone
-                    currentPher = currentPher + (pherParam/currentTourLength); // update pheromone
-                    tspInstance.getNodePheromone()[currentNode][nextNode] = currentPher;
-                }
-            }
+            deposit(ants.get(i), ants.get(i).getTourLength());
         }
 
-        // apply evaporation to the TSP
+        // write the deposits then apply evaporation to the TSP
+        applyDeposits();
+        phaseDone(CycleMetrics.Phase.DEPOSIT);
         evaporate(tspInstance, evaporationParam);
+        phaseDone(CycleMetrics.Phase.EVAPORATION);
+        cycleDone(ants);
         return shortestTour;
     }
 
+    // queues pherParam/tourLength on every edge of the ant's tour, written by applyDeposits
+    protected void deposit(Ant ant, double tourLength) {
+        deposits.addTour(tspInstance.getNodePheromone(), ant.getPath(), pherParam/tourLength);
+    }
+
+    // writes the queued deposits to the pheromone in one pass
+    protected void applyDeposits() {
+        deposits.apply();
+    }
+
+    // the buffer deposit and subclasses queue their deposits on
+    protected DepositBuffer getDeposits() {
+        return deposits;
+    }
+
+    // a tour found by another colony, eg in an IslandModel -- it reinforces this colony's pheromone the way
+    // its own tours do and becomes the best so far if it beats it
+    public void receiveTour(Ant tour, double tourLength) {
+        deposit(tour, tourLength);
+        applyDeposits();
+        getProgress().offer(tour);
+    }
+
+    // one cycle of the run, returns the shortest tour of the cycle
+    @Override
+    protected double runCycle() {
+        return cyclePrivate();
+    }
+
+    // the shortest tour found since the run started, null before the first cycle -- the run's progress keeps it,
+    // this is getResult under the name the other colonies ask for it by
+    public Result getBestTour() {
+        return getResult();
+    }
+
+    // length of getBestTour, Double.MAX_VALUE before the first cycle
+    public double getBestTourLength() {
+        return getProgress().getBestLength();
+    }
+
     // public cycle function -- tracks the best-so-far tour and returns it
     // input: numOfCycles
     public double cycle(int numOfCycles) {
-        double bestSoFar = 1000000000;
+        beginRun(); // or carries on from a restored checkpoint
+        double bestSoFar = getProgress().getBestLength();
 
         // run for numOfCycles specified and keep track of the best found solution
-        for(int i = 0; i < numOfCycles; i++) {
-            double currentShortestPath = cyclePrivate();
+        for(long i = getProgress().getCycles(); i < numOfCycles; i++) {
+            double currentShortestPath = runCycle();
             if(bestSoFar > currentShortestPath) {
                 bestSoFar = currentShortestPath;
             }
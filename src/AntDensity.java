@@ -12,71 +12,97 @@ public class AntDensity extends AntSystem {
         this.fixedPheromone = fixedPheromone;
     }
 
+    // constructor with a fixed seed
+    public AntDensity(TSP tsp, float alpha, float beta, float evaporationParam, double fixedPheromone, long seed) {
+        this(tsp, alpha, beta, evaporationParam, fixedPheromone, seed, "splitmix");
+    }
+
+    // constructor with a fixed seed and the kind of random source, see RandomSource.create
+    public AntDensity(TSP tsp, float alpha, float beta, float evaporationParam, double fixedPheromone, long seed, String randomSource) {
+        super(tsp, alpha, beta, seed, randomSource);
+        this.evaporationParam = evaporationParam;
+        this.fixedPheromone = fixedPheromone;
+    }
+
+    @Override // pheromone is laid during stepAnts, so ants can't build their tours independently
+    protected boolean depositsWhileStepping() {
+        return true;
+    }
+
     @Override // override the antSystem version of stepAnts, implement pheromone laying during each step
     protected void stepAnts(TSP tspInstance, ArrayList<Ant> ants) {
         for(int i = 0; i < ants.size(); i++) {
             // get currentAnt and get currentChoice for it
             Ant currentAnt = ants.get(i);
-            int currentChoice = chooseEdge(tspInstance, currentAnt); // next node to move to from the currentNode (index in edge list)
+            int currentChoice = chooseEdge(tspInstance, currentAnt, getProbabilities(0)); // next node to move to from the currentNode (index in edge list)
             int currentNodeAntIndex = currentAnt.getCurrentNode(); // the currentNode index before stepping to next node
 
             // set the new currentNode and update path and visited and iterate count
-            currentAnt.setCurrentNode(currentChoice);
-            currentAnt.getVisited()[currentChoice] = 1;
-            currentAnt.getPath()[currentAnt.getCount()] = currentChoice;
-            currentAnt.setCount(currentAnt.getCount() + 1);
+            moveAnt(currentAnt, currentChoice);
 
             // lay fixed pheromone amount down on the edge traversed by ant
-            tspInstance.getNodePheromone()[currentNodeAntIndex][currentChoice] += fixedPheromone;
+            layPheromone(tspInstance, currentNodeAntIndex, currentChoice);
+            tspInstance.updateChoiceInfo(currentNodeAntIndex, currentChoice, alpha, beta); // keep the choice info in step with the deposit
         }
     }
 
+    @Override // the same fixed amount on every edge traversal
+    protected void layPheromone(TSP tspInstance, int from, int to) {
+        tspInstance.getNodePheromone().add(from, to, fixedPheromone);
+    }
+
     // evaporate some amount of the pheromone off all edges of the TSP, rate is a percentage ie 0.05 is 5%
     protected void evaporate(TSP tspInstance, float rate) {
-        // decrease all pheromone on all edges by rate amount
-        for(int i = 0; i < tspInstance.getSize(); i++) {
-            for(int j = 0; j < tspInstance.getSize(); j++) {
-                tspInstance.getNodePheromone()[i][j] = tspInstance.getNodePheromone()[i][j]*(1.0f - rate);
-            }
-        }
+        // decrease all pheromone on all edges by rate amount -- one sweep over a dense matrix, O(1) for a sparse one
+        tspInstance.getNodePheromone().scale(1.0f - rate);
     }
 
    // cycle will iterate through all nodes of the TSP for each ant in ants
    private double cyclePrivate() {
+        cycleStarted();
         // initialize ants in list
         ArrayList<Ant> ants = initializeAnts(tspInstance);
 
        // for finding the shortestTour of the cycle
-       double shortestTour = 1000000;
-       int shortestTourIndex = 0;
+       double shortestTour = Double.MAX_VALUE;
 
         // run solver
         findSolutions(tspInstance, ants); // find tours for all ants
+        phaseDone(CycleMetrics.Phase.CONSTRUCTION); // the pheromone is laid while the ants step
 
         // find the shortestTour from the cycle
         for(int i = 0; i < ants.size(); i++) {
-            Ant anty = ants.get(i);
-            double pathLen = pathLength(tspInstance, anty);
+            double pathLen = ants.get(i).getTourLength();
 
             // find shortestTour
             if(pathLen < shortestTour) {
                 shortestTour = pathLen;
-                shortestTourIndex = i;
             }
         }
 
+        phaseDone(CycleMetrics.Phase.EVALUATION);
+
         // evaporate pheromone at the end of cycle
         evaporate(tspInstance, evaporationParam);
+        phaseDone(CycleMetrics.Phase.EVAPORATION);
+        cycleDone(ants);
 
         return shortestTour;
     }
 
+    // one cycle of the run, returns the shortest tour of the cycle
+    @Override
+    protected double runCycle() {
+        return cyclePrivate();
+    }
+
     // public version of the cycle -- it will return the best-so-far tour found of however many cycles performed
     // takes in numOfCycles as input
     public double cycle(int numOfCycles) {
-        double bestSoFarTour = 100000000; // init as a high value
+        beginRun(); // or carries on from a restored checkpoint
+        double bestSoFarTour = getProgress().getBestLength(); // init as a high value, unless the run was restored
 
-        for(int i = 0; i < numOfCycles; i ++) {
+        for(long i = getProgress().getCycles(); i < numOfCycles; i ++) {
             double thisTour = cyclePrivate();
             // if thisTour is shorter than the best-so-far then set new best-so-far
             if(bestSoFarTour > thisTour) {
@@ -3,26 +3,41 @@ import java.util.ArrayList;
 // elitist extends the cycle -- deposit pheromone down after tour
 // save the best-found-path so far and lay down pheromone on the edges of that path after each cycle
 public class AntElitist extends AntCycle {
+    private Ant bestAnt; // holds a copy of the best-so-far tour, the colony's ants are reset every cycle
+
     // constructor
     public AntElitist(TSP tsp, float alpha, float beta, float evaporationParam, double pherParam) {
         super(tsp, alpha, beta, evaporationParam, pherParam);
     }
 
+    // constructor with a fixed seed
+    public AntElitist(TSP tsp, float alpha, float beta, float evaporationParam, double pherParam, long seed) {
+        super(tsp, alpha, beta, evaporationParam, pherParam, seed);
+    }
+
+    // constructor with a fixed seed and the kind of random source, see RandomSource.create
+    public AntElitist(TSP tsp, float alpha, float beta, float evaporationParam, double pherParam, long seed, String randomSource) {
+        super(tsp, alpha, beta, evaporationParam, pherParam, seed, randomSource);
+    }
+
     // cycle runs ants on the TSP and updates pheromone with solutions/tours
     private Ant elitistCycle(Ant bestSoFar) {
+        cycleStarted();
         // initialize ants
         ArrayList<Ant> ants = initializeAnts(tspInstance);
 
         // tracking shortestTour of the cycle
-        double shortestTour = 1000000;
+        double shortestTour = Double.MAX_VALUE;
         int shortestTourIndex = 0;
 
         findSolutions(tspInstance, ants); // finds tours for all ants
+        phaseDone(CycleMetrics.Phase.CONSTRUCTION);
+        improveTours(tspInstance, ants); // local search on the tours, if the system has any
+        phaseDone(CycleMetrics.Phase.LOCAL_SEARCH);
 
         // iterate through ants list and find shortestTour
         for(int i = 0; i < ants.size(); i++) {
-            Ant anty = ants.get(i);
-            double pathLen = pathLength(tspInstance, anty);
+            double pathLen = ants.get(i).getTourLength();
 
             // find shortestTour
             if(pathLen < shortestTour) {
@@ -33,38 +48,30 @@ public class AntElitist extends AntCycle {
 
         // check the shortestAnt against the bestSoFarAnt
         Ant shortestAnt = ants.get(shortestTourIndex);
-        double bestSoFarLength = pathLength(tspInstance, bestSoFar);
-        // if shortestAnt < bestSoFar then we set it to bestSoFar
+        double bestSoFarLength = bestSoFar.getTourLength();
+        // if shortestAnt < bestSoFar then we copy it into bestSoFar
         if(shortestTour < bestSoFarLength) {
-            bestSoFar = shortestAnt;
+            bestSoFar.copyFrom(shortestAnt);
         }
+        phaseDone(CycleMetrics.Phase.EVALUATION);
 
         // go through path of bestSoFarAnt and deposit pheromone of it's path onto TSP
-        for(int i = 0; i < bestSoFar.getPath().length; i++) {
-            // if last node, then get edge that goes from currentNode to startingNode
-            if (i == bestSoFar.getPath().length - 1) {
-                int currentNode = bestSoFar.getPath()[i];
-                int nextNode = bestSoFar.getPath()[0];
-                double currentPher = tspInstance.getNodePheromone()[currentNode][nextNode];  // grab pheromone
-                currentPher = currentPher + (pherParam/bestSoFarLength); // update pheromone
-                tspInstance.getNodePheromone()[currentNode][nextNode] = currentPher;
-            } else {
-                int currentNode = bestSoFar.getPath()[i];
-                int nextNode = bestSoFar.getPath()[i+1];
-                double currentPher = tspInstance.getNodePheromone()[currentNode][nextNode];  // grab pheromone
-                currentPher = currentPher + (pherParam/bestSoFarLength); // update pheromone
-                tspInstance.getNodePheromone()[currentNode][nextNode] = currentPher;
-            }
-        }
+        deposit(bestSoFar, bestSoFarLength);
 
-        // apply evaporation to the tsp
+        // write the deposit then apply evaporation to the tsp
+        applyDeposits();
+        phaseDone(CycleMetrics.Phase.DEPOSIT);
         evaporate(tspInstance, evaporationParam);
+        phaseDone(CycleMetrics.Phase.EVAPORATION);
+        cycleDone(ants);
 
         return bestSoFar; // return the shortestPath Ant of this iteration
     }
 
-    // public cycle: init. the ants and then tracks the best-so-far ant and feeds it into the cycle
-    public double cycleElite(int numOfCycles) {
+    // finds a long tour to start the elitist cycles with and runs the first of them
+    @Override
+    protected void startRun() {
+        super.startRun();
 
         // finds a long tour we can feed into the elitistCycle
         ArrayList<Ant> ants = initializeAnts(tspInstance);
@@ -77,8 +84,7 @@ public class AntElitist extends AntCycle {
 
         // iterates through the ant tours and find shortest one
         for(int i = 0; i < ants.size(); i++) {
-            Ant anty = ants.get(i);
-            double pathLen = pathLength(tspInstance, anty);
+            double pathLen = ants.get(i).getTourLength();
 
             // find shortestTour
             if(pathLen > longestTour) {
@@ -87,15 +93,78 @@ public class AntElitist extends AntCycle {
             }
         }
 
-        // we init the cycle with an ant with no tour
-        Ant initBestAnt = ants.get(longestTourIndex);
-        Ant nextBestAnt = elitistCycle(initBestAnt);
+        // we init the cycle with the longest tour, copied out because the colony's ants get reset
+        if(bestAnt == null || bestAnt.getPath().length != tspInstance.getSize()) {
+            bestAnt = new Ant(tspInstance.getSize(), 0);
+        }
+        bestAnt.copyFrom(ants.get(longestTourIndex));
+        elitistCycle(bestAnt);
+    }
+
+    // the elite tour of a resumed run is the shortest of a round of tours on the pheromone as it is, the old one
+    // may not even be a tour of the instance any more. nothing is deposited until the first cycle
+    @Override
+    protected void resumeRun() {
+        super.resumeRun();
+        seedElite();
+    }
+
+    // makes the elite tour the shortest of a round of tours on the pheromone as it is
+    private void seedElite() {
+        ArrayList<Ant> ants = initializeAnts(tspInstance);
+        findSolutions(tspInstance, ants); // find tours for all the ants
+
+        int shortestTourIndex = 0;
+        for(int i = 1; i < ants.size(); i++) {
+            if(ants.get(i).getTourLength() < ants.get(shortestTourIndex).getTourLength()) {
+                shortestTourIndex = i;
+            }
+        }
+
+        if(bestAnt == null || bestAnt.getPath().length != tspInstance.getSize()) {
+            bestAnt = new Ant(tspInstance.getSize(), 0);
+        }
+        bestAnt.copyFrom(ants.get(shortestTourIndex));
+    }
+
+    // the elite tour is kept in a checkpoint, the run's best tour is in it already
+    @Override
+    protected Ant[] getCheckpointTours() {
+        return new Ant[] {bestAnt};
+    }
+
+    @Override
+    protected void restoreCheckpointTours(Ant[] tours) {
+        bestAnt = tours[0];
+    }
+
+    // one elitist cycle, returns the length of the best-so-far tour
+    @Override
+    protected double runCycle() {
+        if(bestAnt == null || bestAnt.getPath().length != tspInstance.getSize()) {
+            seedElite(); // nodes were added or removed without a resume, the elite tour is of the old instance
+        }
+        return elitistCycle(bestAnt).getTourLength();
+    }
+
+    // a tour from another colony also replaces the elite tour when it's shorter
+    @Override
+    public void receiveTour(Ant tour, double tourLength) {
+        super.receiveTour(tour, tourLength);
+        if(bestAnt != null && bestAnt.getPath().length == tour.getPath().length && tourLength < bestAnt.getTourLength()) {
+            bestAnt.copyFrom(tour);
+        }
+    }
+
+    // public cycle: init. the ants and then tracks the best-so-far ant and feeds it into the cycle
+    public double cycleElite(int numOfCycles) {
+        beginRun(); // or carries on from a restored checkpoint
 
-        // iterate numOfCycles from input and update with the best-so-far ant
-        for(int i = 0; i < numOfCycles; i++) {
-            nextBestAnt = elitistCycle(nextBestAnt);
+        // iterate numOfCycles from input and update with the best-so-far ant -- startRun ran one cycle already
+        for(long i = getProgress().getCycles() - 1; i < numOfCycles; i++) {
+            elitistCycle(bestAnt);
         }
 
-        return pathLength(tspInstance, nextBestAnt);
+        return bestAnt.getTourLength();
     }
 }
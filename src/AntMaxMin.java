@@ -5,27 +5,46 @@ public class AntMaxMin extends AntCycle {
     // constructor
     public AntMaxMin(TSP tsp, float alpha, float beta, float evaporationParam, double pherParam) {
         super(tsp, alpha, beta, evaporationParam, pherParam);
+        setStagnationDetector(new StagnationDetector(convergedRange, convergedShare));
+    }
+
+    // constructor with a fixed seed
+    public AntMaxMin(TSP tsp, float alpha, float beta, float evaporationParam, double pherParam, long seed) {
+        this(tsp, alpha, beta, evaporationParam, pherParam, seed, "splitmix");
+    }
+
+    // constructor with a fixed seed and the kind of random source, see RandomSource.create
+    public AntMaxMin(TSP tsp, float alpha, float beta, float evaporationParam, double pherParam, long seed, String randomSource) {
+        super(tsp, alpha, beta, evaporationParam, pherParam, seed, randomSource);
+        setStagnationDetector(new StagnationDetector(convergedRange, convergedShare));
     }
 
     // two const control the range of the pheromone
     private static final double minPheromone = 0.001; // min value of pheromone
     private static final double maxPheromone = 0.5; // max value of pheromone
 
+    // two const control when the tours have stagnated and the pheromone is reset
+    private static final double convergedRange = 2; // tours within this of each other have converged
+    private static final double convergedShare = 0.4; // stagnated once this share of the ants converge on one tour
+
     // cycle runs ants on the TSP and uses the cycle-best tour to deposit pheromone
     private double maxMinCycle() {
+        cycleStarted();
         // initialize ants
         ArrayList<Ant> ants = initializeAnts(tspInstance);
 
         // init shortestTour measures
-        double shortestTour = 1000000;
+        double shortestTour = Double.MAX_VALUE;
         int shortestTourIndex = 0;
 
         findSolutions(tspInstance, ants); // finds tours for all ants
+        phaseDone(CycleMetrics.Phase.CONSTRUCTION);
+        improveTours(tspInstance, ants); // local search on the tours, if the system has any
+        phaseDone(CycleMetrics.Phase.LOCAL_SEARCH);
 
         // iterate through ants list and find shortestTour
         for (int i = 0; i < ants.size(); i++) {
-            Ant anty = ants.get(i);
-            double pathLen = pathLength(tspInstance, anty);
+            double pathLen = ants.get(i).getTourLength();
 
             // find shortestTour
             if (pathLen < shortestTour) {
@@ -37,116 +56,58 @@ public class AntMaxMin extends AntCycle {
         Ant shortestAnt = ants.get(shortestTourIndex);
 
         // checks to see how many of the ants paths have converged, if they have then re-init the pheromone on the TSP
-        if(stagnationChecker(tspInstance, ants)) {
+        if(isStagnated(ants)) {
             pheromoneInitializer();
+            restarted();
         }
+        phaseDone(CycleMetrics.Phase.EVALUATION);
 
         // go through path of cycle-best Ant and deposit pheromone of it's path onto TSP
-        for (int i = 0; i < shortestAnt.getPath().length; i++) {
-            // if last node, then get edge that goes from currentNode to startingNode
-            if (i == shortestAnt.getPath().length - 1) {
-                int currentNode = shortestAnt.getPath()[i];
-                int nextNode = shortestAnt.getPath()[0];
-                pheromoneSetter(tspInstance, currentNode, nextNode, shortestTour);
-            } else {
-                int currentNode = shortestAnt.getPath()[i];
-                int nextNode = shortestAnt.getPath()[i + 1];
-                pheromoneSetter(tspInstance, currentNode, nextNode, shortestTour);
-            }
-        }
+        deposit(shortestAnt, shortestTour);
 
-        // apply evaporation to the TSP
+        // write the deposit then apply evaporation to the TSP
+        applyDeposits();
+        phaseDone(CycleMetrics.Phase.DEPOSIT);
         evaporate(tspInstance, evaporationParam);
+        phaseDone(CycleMetrics.Phase.EVAPORATION);
+        cycleDone(ants);
         return shortestTour; // return the shortestPath Ant of this iteration
     }
 
+    // queues the deposits on the edges of the tour, they're kept between minPheromone and maxPheromone
+    @Override
+    protected void deposit(Ant ant, double tourLength) {
+        getDeposits().addTourClamped(tspInstance.getNodePheromone(), ant.getPath(), pherParam / tourLength, minPheromone, maxPheromone);
+    }
+
     // initializes the pheromone to maxPheromone
     private void pheromoneInitializer() {
-        for(int i = 0; i < tspInstance.getSize(); i++) {
-            for(int k = 0; k < tspInstance.getSize(); k++) {
-               tspInstance.getNodePheromone()[i][k] = maxPheromone;
-            }
-        }
+        tspInstance.getNodePheromone().fill(maxPheromone);
     }
 
-    // checks for min/max and sets pheromone value
-    private void pheromoneSetter(TSP tspInstance, int currentNode, int nextNode, double tourLength) {
-        double currentPher = tspInstance.getNodePheromone()[currentNode][nextNode];  // grab pheromone
-        double setPher = 0;
-
-        if(currentPher <= minPheromone) { // currentPheromone is at minPheromone, stay there
-            setPher = minPheromone;
-        }else if(currentPher >= maxPheromone) { // currentPheromone is at maxPheromone, stay there
-            setPher = maxPheromone;
-        }else{
-            setPher = currentPher + (pherParam / tourLength); // somewhere between min/max, set the new pheromone
-        }
+    // resets the pheromone to maxPheromone
+    @Override
+    protected void startRun() {
+        super.startRun();
 
-        tspInstance.getNodePheromone()[currentNode][nextNode] = setPher; // set the pheromone
+        // init pheromone lvls on the tspInstance
+        pheromoneInitializer();
     }
 
-    // checks if ants tours are converging too much and returns boolean value
-    private boolean stagnationChecker(TSP tspInstance, ArrayList<Ant> ants) {
-        boolean stagnated = false;
-        int count = 0;  // tracks the number of antPaths that have converged
-        // for ants check each pathLength against the next one
-        for(int i = 0; i < ants.size() - 1; i++) {
-            count  = 0;
-            double currentLength = pathLength(this.tspInstance, ants.get(i));
-            for(int j = 0; j < ants.size(); j++) {
-                if( j != i) {
-                    double nextLength = pathLength(this.tspInstance, ants.get(j));
-                    double difference = Math.abs(currentLength - nextLength);
-
-                    // if the two values almost equal (range -2 to +2) one another then the two antPaths that have converged
-                    if(0 < difference && difference < 2) {
-                        count++;
-                    }
-
-                    // if the count of converged ants is  > 0.4 of all ants then stagnation
-                    if(count > 0.4*ants.size()) {
-                        stagnated = true;
-                        break;
-                    }
-                }
-            }
-        }
-
-        return stagnated;
+    // one MaxMin cycle, returns the shortest tour of the cycle
+    @Override
+    protected double runCycle() {
+        return maxMinCycle();
     }
 
-
     // public cycle function -- tracks the best-so-far tour and returns it
     // input: numOfCycles
     public double cycleMaxMin(int numOfCycles) {
+        beginRun(); // or carries on from a restored checkpoint
 
-        // finds a long tour that can be fed into the elitistCycle
-        ArrayList<Ant> ants = initializeAnts(tspInstance);
-
-        // init pheromone lvls on the tspInstance
-        pheromoneInitializer();
-
-        double longestTour = 1;
-        int longestTourIndex = 0;
-
-        findSolutions(tspInstance, ants); // finds tours for all ants
-
-        // iterate through ants tours and set shortest
-        for(int i = 0; i < ants.size(); i++) {
-            Ant anty = ants.get(i);
-            double pathLen = pathLength(tspInstance, anty);
-
-            // find shortestTour
-            if(pathLen > longestTour) {
-                longestTour = pathLen;
-                longestTourIndex = i;
-            }
-        }
-
-
-        // init the cycle with an ant with no tour
-        double shortestTour = 1000000000;
-        for(int i = 0; i < numOfCycles; i++) {
+        // init the cycle with the best tour so far, none unless the run was restored
+        double shortestTour = getProgress().getBestLength();
+        for(long i = getProgress().getCycles(); i < numOfCycles; i++) {
             double currentTour = maxMinCycle();
             if(currentTour < shortestTour) {
                 shortestTour = currentTour;
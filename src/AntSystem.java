@@ -1,72 +1,501 @@
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 // the base class that runs the basic system -- everything else is an extension of this
 abstract class AntSystem {
     TSP tspInstance; // the TSP object that the ants lay their pheromone down on
     float alpha; // parameter for weighting the relative importance of the pheromone in the probability function
     float beta; // parameter for weighting the relative importance of the visibility heuristic in the probability function
+    private long seed; // the seed the run started from, kept so it can be logged and replayed
+    private RandomSource random; // hands every ant a seed each cycle -- the same seed replays the same tours
+    private ExecutorService executor; // if set the ants build their tours in parallel on it, null runs them one by one
+    private int parallelism = 1; // number of chunks the ants are split into for parallel construction
+    private boolean useCandidateLists = false; // if true the ants only look at the nearest neighbours of their currentNode
+    private Colony colony; // the ants and their scratch buffers, made on the first initializeAnts
+    private ArrayList<Callable<Void>> constructionTasks; // one task per chunk of ants, kept with the colony
+    private ArrayList<Callable<Void>> stepTasks; // one task per chunk of ants that moves each of them one step, kept with the colony
+    private StagnationDetector stagnationDetector; // tells the system when to restart, null if it never does
+    private LocalSearch[] localSearches = new LocalSearch[0]; // run in order on every tour before the pheromone is laid
+    private LocalSearch[][] searchWorkers; // a copy of localSearches for each worker -- [worker][search]
+    private ArrayList<Callable<Void>> searchTasks; // one task per chunk of ants that improves their tours, kept with the colony
+    private final ArrayList<CycleListener> listeners = new ArrayList<>(); // told about every cycle, nothing is timed without one
+    private final CycleMetrics metrics = new CycleMetrics(); // the current cycle's, reused every cycle
+    private final RunProgress progress = new RunProgress(); // the cycles and best tour of the current run
+    private Checkpointer checkpointer; // saves the run every few cycles, null if it isn't saved
+    private boolean restored = false; // a checkpoint was restored, the next run carries on from it
 
-    // constructor
+    // constructor, seeded from the clock
     public AntSystem(TSP tsp, float alpha, float beta) {
+        this(tsp, alpha, beta, System.nanoTime());
+    }
+
+    // constructor, the same seed gives the same tours
+    public AntSystem(TSP tsp, float alpha, float beta, long seed) {
+        this(tsp, alpha, beta, seed, "splitmix");
+    }
+
+    // constructor with the kind of random source picked by name, see RandomSource.create
+    public AntSystem(TSP tsp, float alpha, float beta, long seed, String randomSource) {
         this.tspInstance = tsp;
         this.alpha = alpha;
         this.beta = beta;
+        setRandomSource(RandomSource.create(randomSource, seed));
+        this.seed = seed;
+    }
+
+    // fixes the seed of the system so that a run can be reproduced, keeps the kind of random source
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+        this.seed = seed;
+    }
+
+    // the seed the system was last seeded with
+    public long getSeed() {
+        return seed;
+    }
+
+    // the stream the ants are seeded from
+    RandomSource getRandomSource() {
+        return random;
+    }
+
+    // swaps in a different random source, it should already be seeded
+    public void setRandomSource(RandomSource random) {
+        this.random = random;
+        colony = null; // the ants get streams of the new kind
+    }
+
+    // turns parallel tour construction on (using the common ForkJoinPool) or off
+    public void setParallel(boolean parallel) {
+        if(parallel) {
+            setExecutor(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+        } else {
+            setExecutor(null, 1);
+        }
+    }
+
+    // turns candidate list construction on or off -- the ants pick among the nearest unvisited neighbours
+    // and only fall back to scanning every node when all of them are visited
+    public void setCandidateLists(boolean useCandidateLists) {
+        this.useCandidateLists = useCandidateLists;
+    }
+
+    // sets how the system tells its tours have converged, null turns the check off
+    public void setStagnationDetector(StagnationDetector stagnationDetector) {
+        this.stagnationDetector = stagnationDetector;
+    }
+
+    public StagnationDetector getStagnationDetector() {
+        return stagnationDetector;
+    }
+
+    // true if the tours just found by findSolutions have stagnated, a system that restarts checks this each cycle
+    protected boolean isStagnated(ArrayList<Ant> ants) {
+        return stagnationDetector != null && stagnationDetector.isStagnated(ants);
+    }
+
+    // sets up a run, the cycles come after -- the subclasses that need more setup override it and call this first
+    protected void startRun() {
+        progress.start();
+    }
+
+    // one cycle of the run, returns the length of the tour the variant reports for the cycle
+    protected abstract double runCycle();
+
+    // runs cycles until policy says to stop and returns the length of the best tour found. getProgress has the
+    // best tour, and can be read from another thread while this runs -- eg to take the best so far at a deadline
+    public double solve(TerminationPolicy policy) {
+        beginRun();
+        return runUntil(policy);
+    }
+
+    // carries on from the pheromone the tsp has now rather than setting the run up again, eg after nodes were
+    // added to or removed from it with TSP.addNode and the like -- the pheromone already laid is the warm start
+    public double resume(TerminationPolicy policy) {
+        resumeRun();
+        return runUntil(policy);
+    }
+
+    // sets up a resumed run without touching the pheromone. the progress starts over, the best tour from before
+    // is a tour of the instance as it was -- the subclasses override it like startRun
+    protected void resumeRun() {
+        progress.start();
+    }
+
+    // sets up a run like startRun, or carries on from the checkpoint restore put the system in -- the public
+    // cycle loops start with this and count their cycles on getProgress so a restored run finishes the same loop
+    protected void beginRun() {
+        if(restored) {
+            restored = false;
+            return;
+        }
+        startRun();
+    }
+
+    // saves the run with checkpointer every few cycles from now on, null stops saving it
+    public void setCheckpointer(Checkpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
+
+    // puts the system back in the state a Checkpointer saved at path -- the pheromone, the random stream, the best
+    // tours and the cycle count -- so the next cycleMaxMin, cycleElite, cycle or solve carries on from the saved
+    // cycle instead of starting over. with the same seed and settings it goes on with the tours the saved run would
+    // have found. the system has to be the same variant on the same instance, with the same pheromone storage and
+    // kind of random source
+    public void restore(String path) throws IOException {
+        Checkpointer.restore(path, this);
+        restored = true;
+    }
+
+    // the tours the variant carries from cycle to cycle besides the run's best, saved in a checkpoint -- any of
+    // them may be null before it's found. none by default
+    protected Ant[] getCheckpointTours() {
+        return new Ant[0];
+    }
+
+    // puts back the tours of getCheckpointTours, in the same order
+    protected void restoreCheckpointTours(Ant[] tours) {
+    }
+
+    private double runUntil(TerminationPolicy policy) {
+        progress.checkSize(tspInstance.getSize()); // before the policy reads the best length, cycleStarted checks after
+        while(!policy.shouldStop(progress)) {
+            runCycle();
+        }
+        return progress.getBestLength();
+    }
+
+    // the progress of the current run
+    public RunProgress getProgress() {
+        return progress;
+    }
+
+    // the best tour of the current run, or of the last one once it's over -- null before the first cycle
+    // eg after cycle(numOfCycles), which only returns the length
+    public Result getResult() {
+        return progress.getResult();
+    }
+
+    // listener gets the metrics of every cycle from now on
+    public void addCycleListener(CycleListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeCycleListener(CycleListener listener) {
+        listeners.remove(listener);
+    }
+
+    // a cycle is starting -- the cycles of the subclasses mark their phases with phaseDone and end with cycleDone
+    protected void cycleStarted() {
+        progress.checkSize(tspInstance.getSize());
+        metrics.start(!listeners.isEmpty());
+    }
+
+    // the phase of the cycle that was running has finished, the next one starts
+    protected void phaseDone(CycleMetrics.Phase phase) {
+        metrics.phaseDone(phase);
+    }
+
+    // the system has stagnated and restarted in this cycle
+    protected void restarted() {
+        metrics.restart();
+    }
+
+    // the cycle has finished with the tours of ants, the run's progress is updated and the listeners get its metrics
+    protected void cycleDone(ArrayList<Ant> ants) {
+        progress.cycleDone(ants);
+        if(checkpointer != null) {
+            checkpointer.cycleDone(this);
+        }
+        if(listeners.isEmpty() || !metrics.isMeasured()) {
+            return; // nothing to tell, or a listener added during the cycle that waits for the next one
+        }
+        metrics.finish(tspInstance, ants);
+        for(int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).cycleFinished(this, metrics);
+        }
+    }
+
+    // sets the local searches every tour goes through between findSolutions and the pheromone update, in order
+    // eg new TwoOpt(), new OrOpt() -- none turns the stage off
+    public void setLocalSearch(LocalSearch... searches) {
+        localSearches = searches.clone();
+        searchWorkers = null;
+        searchTasks = null;
+    }
+
+    // builds the ant tours on the given executor, split into parallelism chunks
+    public void setExecutor(ExecutorService executor, int parallelism) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+        searchWorkers = null;
     }
 
     // sets up ants on each node of the TSP -- currently we use as many ants as there are nodes in the TSP
+    // the ants come from the colony and are only allocated the first time, after that they are reset
     protected ArrayList<Ant> initializeAnts(TSP tspInstance) {
-        ArrayList<Ant> ants = new ArrayList<>(); // list storing the ants
-
-        // for each node we make an ant and set it's currentNode
-        for(int i = 0; i < tspInstance.getSize(); i++) {
-            Ant currentAnt = new Ant(tspInstance.getSize(), i); // make ant,A -- we set the startNode and currentNode in the constructor
-            currentAnt.getPath()[currentAnt.getCount()] = i; // the starting node we set in the path[]
-            currentAnt.setCount(currentAnt.getCount() + 1); // iterate the count of nodes visited
-            currentAnt.getVisited()[i] = 1; // set our visited for our initial startNode
-            ants.add(currentAnt); // add to list
+        if(colony == null || colony.getSize() != tspInstance.getSize() || colony.getWorkers() != parallelism) {
+            colony = new Colony(tspInstance.getSize(), parallelism, random);
+            constructionTasks = null; // made again for the new colony on the next parallel construction
+            stepTasks = null;
+            searchTasks = null;
         }
-        return ants;
+        return colony.reset(random);
     }
 
     // this steps through the tspInstance one cycle and provides solutions/tours for all the ants on it
     protected void findSolutions(TSP tspInstance, ArrayList<Ant> ants) {
-        // for the size of the tsp we iterate through the ants and set their nextStep -- ie choose the greedy node, no pheromone yet
+        // bring the choice info up to date with the pheromone laid and evaporated in the last cycle
+        if(useCandidateLists) {
+            tspInstance.updateCandidateChoiceInfo(alpha, beta);
+        } else {
+            tspInstance.updateChoiceInfo(alpha, beta);
+        }
+
+        if(executor != null && !depositsWhileStepping()) {
+            // the ants only read the pheromone while building, so each one can build its whole tour on its own
+            buildToursInParallel(tspInstance, ants);
+        } else if(executor != null && tspInstance.getNodePheromone().isConcurrent()) {
+            // the ants lay pheromone as they go, they can still move in parallel one step at a time if the
+            // matrix takes concurrent deposits
+            stepAntsInParallel(tspInstance, ants);
+        } else {
+            // for the size of the tsp we iterate through the ants and set their nextStep -- ie choose the greedy node, no pheromone yet
+            for(int i = 0; i < tspInstance.getSize() - 1; i++) {
+                stepAnts(tspInstance, ants);
+            }
+        }
+
+        // add the edge back to the start, each ant's getTourLength is now its whole tour
+        DistanceProvider dist = tspInstance.getNodeDistances();
+        for(int i = 0; i < ants.size(); i++) {
+            Ant currentAnt = ants.get(i);
+            currentAnt.closeTour(dist.get(currentAnt.getCurrentNode(), currentAnt.getStartNode()));
+        }
+    }
+
+    // runs the local searches on the tours just found, each ant on its own so they can be split over the executor
+    // like construction -- every search only touches its own ant, so the tours only depend on the seed
+    protected void improveTours(TSP tspInstance, ArrayList<Ant> ants) {
+        if(localSearches.length == 0) {
+            return;
+        }
+        if(searchWorkers == null) {
+            searchWorkers = new LocalSearch[parallelism][];
+            searchWorkers[0] = localSearches;
+            for(int w = 1; w < parallelism; w++) {
+                searchWorkers[w] = new LocalSearch[localSearches.length];
+                for(int s = 0; s < localSearches.length; s++) {
+                    searchWorkers[w][s] = localSearches[s].newWorker();
+                }
+            }
+            searchTasks = null;
+        }
+
+        if(executor == null) {
+            for(int i = 0; i < ants.size(); i++) {
+                improveTour(tspInstance, ants.get(i), searchWorkers[0]);
+            }
+            return;
+        }
+
+        if(searchTasks == null) {
+            searchTasks = makeSearchTasks(ants);
+        }
+        try {
+            for(Future<Void> future : executor.invokeAll(searchTasks)) {
+                future.get(); // rethrows anything that went wrong in a worker
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while improving tours", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("improving tours failed", e.getCause());
+        }
+    }
+
+    private void improveTour(TSP tspInstance, Ant ant, LocalSearch[] searches) {
+        for(int s = 0; s < searches.length; s++) {
+            searches[s].improve(tspInstance, ant);
+        }
+    }
+
+    // one task per chunk of the colony's ants, each chunk uses the searches of its own worker
+    private ArrayList<Callable<Void>> makeSearchTasks(final ArrayList<Ant> ants) {
+        int chunks = Math.min(parallelism, ants.size());
+        ArrayList<Callable<Void>> tasks = new ArrayList<>(chunks);
+
+        for(int c = 0; c < chunks; c++) {
+            final int from = c * ants.size() / chunks;
+            final int to = (c + 1) * ants.size() / chunks;
+            final LocalSearch[] searches = searchWorkers[c];
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for(int i = from; i < to; i++) {
+                        improveTour(tspInstance, ants.get(i), searches);
+                    }
+                    return null;
+                }
+            });
+        }
+        return tasks;
+    }
+
+    // AntDensity and AntQuantity lay pheromone inside stepAnts, so their ants have to move in lock-step
+    protected boolean depositsWhileStepping() {
+        return false;
+    }
+
+    // pheromone laid on the edge from -> to as an ant walks it, by the systems that deposit while stepping
+    // it can be called from several threads at once, see stepAntsInParallel
+    protected void layPheromone(TSP tspInstance, int from, int to) {
+    }
+
+    // splits the ants into chunks and builds their tours on the executor -- the pheromone matrix isn't written
+    // until every tour is done, so all ants read the same snapshot and the result only depends on the seed
+    private void buildToursInParallel(TSP tspInstance, ArrayList<Ant> ants) {
+        if(constructionTasks == null) {
+            constructionTasks = makeConstructionTasks(ants);
+        }
+
+        try {
+            for(Future<Void> future : executor.invokeAll(constructionTasks)) {
+                future.get(); // rethrows anything that went wrong in a worker
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while building tours", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("building tours failed", e.getCause());
+        }
+    }
+
+    // one task per chunk of the colony's ants, each chunk uses the scratch buffer of its own worker
+    private ArrayList<Callable<Void>> makeConstructionTasks(final ArrayList<Ant> ants) {
+        int chunks = Math.min(parallelism, ants.size());
+        ArrayList<Callable<Void>> tasks = new ArrayList<>(chunks);
+
+        for(int c = 0; c < chunks; c++) {
+            final int from = c * ants.size() / chunks;
+            final int to = (c + 1) * ants.size() / chunks;
+            final double[] probabilities = colony.getProbabilities(c);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for(int i = from; i < to; i++) {
+                        buildTour(tspInstance, ants.get(i), probabilities);
+                    }
+                    return null;
+                }
+            });
+        }
+        return tasks;
+    }
+
+    // moves the ants in lock-step like stepAnts, each step split into chunks on the executor. every ant of a
+    // step chooses from the choice info as it was at the start of the step and its deposit goes straight into the
+    // concurrent pheromone matrix; once the step is done the choice info of the walked edges is brought up to date.
+    // every deposit on an edge is the same amount so the pheromone doesn't depend on the order the threads add in
+    private void stepAntsInParallel(TSP tspInstance, ArrayList<Ant> ants) {
+        if(stepTasks == null) {
+            stepTasks = makeStepTasks(ants);
+        }
+
+        try {
+            for(int step = 0; step < tspInstance.getSize() - 1; step++) {
+                for(Future<Void> future : executor.invokeAll(stepTasks)) {
+                    future.get(); // rethrows anything that went wrong in a worker
+                }
+                for(int i = 0; i < ants.size(); i++) {
+                    int[] path = ants.get(i).getPath();
+                    tspInstance.updateChoiceInfo(path[step], path[step + 1], alpha, beta);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while stepping ants", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("stepping ants failed", e.getCause());
+        }
+    }
+
+    // one task per chunk of the colony's ants, moving each ant of the chunk one step and laying its pheromone
+    private ArrayList<Callable<Void>> makeStepTasks(final ArrayList<Ant> ants) {
+        int chunks = Math.min(parallelism, ants.size());
+        ArrayList<Callable<Void>> tasks = new ArrayList<>(chunks);
+
+        for(int c = 0; c < chunks; c++) {
+            final int from = c * ants.size() / chunks;
+            final int to = (c + 1) * ants.size() / chunks;
+            final double[] probabilities = colony.getProbabilities(c);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for(int i = from; i < to; i++) {
+                        Ant currentAnt = ants.get(i);
+                        int currentNode = currentAnt.getCurrentNode();
+                        int currentChoice = chooseEdge(tspInstance, currentAnt, probabilities);
+                        moveAnt(currentAnt, currentChoice);
+                        layPheromone(tspInstance, currentNode, currentChoice);
+                    }
+                    return null;
+                }
+            });
+        }
+        return tasks;
+    }
+
+    // walks a single ant through the whole TSP
+    protected void buildTour(TSP tspInstance, Ant currentAnt, double[] probabilities) {
         for(int i = 0; i < tspInstance.getSize() - 1; i++) {
-            stepAnts(tspInstance, ants);
+            moveAnt(currentAnt, chooseEdge(tspInstance, currentAnt, probabilities));
         }
     }
 
+    // scratch probability buffer of a worker, the sequential stepAnts uses worker 0
+    protected double[] getProbabilities(int worker) {
+        return colony.getProbabilities(worker);
+    }
+
     // sets the next node for each ant to visit
     protected void stepAnts(TSP tspInstance, ArrayList<Ant> ants) {
         // for each ant in the list of ants
         for(int i = 0; i < ants.size(); i++) {
             // get currentAnt and get the currentChoice for said ant
             Ant currentAnt = ants.get(i);
-            int currentChoice = chooseEdge(tspInstance, currentAnt); // our choice of node to move to based on probability function
-
-            // set the new currentNode and update path and visited and iterate count
-            currentAnt.setCurrentNode(currentChoice);
-            currentAnt.getVisited()[currentChoice] = 1;
-            currentAnt.getPath()[currentAnt.getCount()] = currentChoice;
-            currentAnt.setCount(currentAnt.getCount() + 1);
+            int currentChoice = chooseEdge(tspInstance, currentAnt, getProbabilities(0)); // our choice of node to move to based on probability function
+            moveAnt(currentAnt, currentChoice);
         }
     }
 
-    // returns the total path length of the ants tour/solution
+    // set the new currentNode and update path and visited and iterate count, the ant adds the edge to its tour length
+    protected void moveAnt(Ant currentAnt, int currentChoice) {
+        currentAnt.visitNode(currentChoice, tspInstance.getNodeDistances().get(currentAnt.getCurrentNode(), currentChoice));
+    }
+
+    // returns the total path length of the ants tour/solution, walking the whole path
+    // once findSolutions is done the ants have it cached, see Ant.getTourLength
     protected double pathLength(TSP tspInstance, Ant ant) {
         double pathLength = 0;
 
         // for each node in TSP we sum the edgeDist that the ant chose
+        DistanceProvider dist = tspInstance.getNodeDistances();
+        int[] path = ant.getPath();
         for(int i = 0; i < tspInstance.getSize(); i++) {
-            double[][] dist = tspInstance.getNodeDistances();
-            int[] path = ant.getPath();
-
             // add these edges in path to the pathLength
             if(i == tspInstance.getSize() - 1) { // the last value, connect to the first node in path, otherwise connect to path[i+1]
-                pathLength += dist[path[i]][path[0]];
+                pathLength += dist.get(path[i], path[0]);
             } else {
-                pathLength += dist[path[i]][path[i+1]];
+                pathLength += dist.get(path[i], path[i+1]);
             }
         }
 
@@ -75,23 +504,28 @@ abstract class AntSystem {
 
     // takes in an Ant and returns the next closest node to go to -- it's a basic greedy approach used in the naive solution
     protected int greedyChoice(Ant currentAnt, TSP tspInstance) {
+        // the candidate list is sorted by distance so the first unvisited candidate is the nearest node
+        if(useCandidateLists) {
+            int[] candidates = tspInstance.getCandidateLists()[currentAnt.getCurrentNode()];
+            for(int c = 0; c < candidates.length; c++) {
+                if(!currentAnt.isVisited(candidates[c])) {
+                    return candidates[c];
+                }
+            }
+        }
+
         double minDistPosition = 0;
-        double minDist = 1000000000; // set to a high val
+        double minDist = Double.MAX_VALUE; // set to a high val
 
         // loop through every position of the TSP
         for(int i = 0; i < tspInstance.getSize(); i++) {
-            boolean visited = false;
-
-            // check if visited
-            if(currentAnt.getVisited()[i] == 1) {
-                visited = true;
-            }
+            boolean visited = currentAnt.isVisited(i); // check if visited
 
 
             // if we havent visited i in currentAnt.path then we check the dist
             if(!visited && currentAnt.getCurrentNode() != i) {
 
-                double currentDist = tspInstance.getNodeDistances()[currentAnt.getCurrentNode()][i]; // grab dist from the tsp
+                double currentDist = tspInstance.getNodeDistances().get(currentAnt.getCurrentNode(), i); // grab dist from the tsp
 
                 // check it against the minDist
                 if(currentDist < minDist) {
@@ -105,57 +539,71 @@ abstract class AntSystem {
     }
 
     // probabilistic selection of the nextMove of the ant
-    protected int chooseEdge(TSP tspInstance, Ant currentAnt) {
-        int edgeChoice = 0;
-        double[] initialProbs = new double[tspInstance.getSize()]; // store the initial probability values
-        double[] probablities = new double[tspInstance.getSize()];
+    // probabilities is a scratch buffer of the TSP size that is overwritten, so nothing is allocated per step
+    protected int chooseEdge(TSP tspInstance, Ant currentAnt, double[] probabilities) {
+        if(useCandidateLists) {
+            return chooseCandidateEdge(tspInstance, currentAnt);
+        }
 
         // for currentAnt's currentNode we compute the probabilities of all its potential moves
-        // loop through every position of the TSP
-        for(int i = 0; i < tspInstance.getSize(); i++) {
-            boolean visited = false;
+        double[] choiceInfo = tspInstance.getChoiceInfo(); // cached pheromone^alpha * (1/distance)^beta, flat
+        int row = currentAnt.getCurrentNode() * tspInstance.getSize(); // start of the currentNode's row
 
-            // check if visited node
-            if(currentAnt.getVisited()[i] == 1) {
-                visited = true;
-            }
+        // copy the whole row and zero the nodes on the ant's path (currentNode included) -- no branch per node
+        System.arraycopy(choiceInfo, row, probabilities, 0, tspInstance.getSize());
+        int[] path = currentAnt.getPath();
+        for(int i = 0; i < currentAnt.getCount(); i++) {
+            probabilities[path[i]] = 0;
+        }
+        double sumOfProbs = Kernels.sum(probabilities, tspInstance.getSize());
 
-            // if haven't visited i in currentAnt.path then compute its prob and save into initialProb
-            if(!visited && currentAnt.getCurrentNode() != i) {
-                double pheromoneProb = Math.pow(tspInstance.getNodePheromone()[currentAnt.getCurrentNode()][i], alpha); // pheromone
-                double heurisiticProb = Math.pow(1/(tspInstance.getNodeDistances()[currentAnt.getCurrentNode()][i]), beta); // 1/distance
-                double currentProb = pheromoneProb * heurisiticProb; // current probability of moving from currentNode to node i
+        // sample q from the ant's own uniform stream, the choice is where the running sum passes q * sumOfProbs
+        double sample = currentAnt.nextRandom();
+        int edgeChoice = Kernels.sample(probabilities, tspInstance.getSize(), sample * sumOfProbs);
 
-                initialProbs[i] = currentProb; // set it in the array
-            }
+        // every unvisited node has a zero probability (the pheromone underflowed), go to the nearest instead
+        if(edgeChoice < 0) {
+            return greedyChoice(currentAnt, tspInstance);
         }
+        return edgeChoice;
+    }
 
-        // sum of the initial probabilities
+    // probabilistic selection among the unvisited candidates of the currentNode -- O(k) instead of O(n) per step
+    private int chooseCandidateEdge(TSP tspInstance, Ant currentAnt) {
+        int currentNode = currentAnt.getCurrentNode();
+        int[] candidates = tspInstance.getCandidateLists()[currentNode];
+        double[] choiceInfo = tspInstance.getCandidateChoiceInfo();
+        int row = currentNode * tspInstance.getCandidateListSize(); // start of the currentNode's candidates in the flat choice info
+
+        // sum of the unvisited candidates' weights
         double sumOfProbs = 0;
-        for(int i = 0; i < initialProbs.length; i++) {
-            sumOfProbs += initialProbs[i];
+        for(int c = 0; c < candidates.length; c++) {
+            if(!currentAnt.isVisited(candidates[c])) {
+                sumOfProbs += choiceInfo[row + c];
+            }
         }
 
-        // initial actual probabilities
-        for(int i = 0; i < probablities.length; i++) {
-            probablities[i] =  initialProbs[i]/sumOfProbs;
+        // every candidate has been visited, take the nearest of the remaining nodes instead -- a scan of
+        // plain distances, working out the pheromone^alpha * (1/distance)^beta of every node here costs more
+        // than the rest of the step on large instances
+        if(sumOfProbs <= 0) {
+            return greedyChoice(currentAnt, tspInstance);
         }
 
-        // sample q from uniform distribution and apply probabilities
-        Random rand = new Random();
-        double sample = rand.nextDouble();
-
+        // sample inside the sum instead of normalizing every weight
+        double sample = currentAnt.nextRandom() * sumOfProbs;
         double sum = 0;
-        for(int i = 0; i < probablities.length; i++) {
-            sum += probablities[i]; // add each probability as we go
-
-            // if our sample lies inside this interval then choose i
-            if(sample <= sum) {
-                edgeChoice = i; // this is our probabilistic choice
-                break; // exit,
+        int edgeChoice = -1;
+        for(int c = 0; c < candidates.length; c++) {
+            if(!currentAnt.isVisited(candidates[c])) {
+                edgeChoice = candidates[c];
+                sum += choiceInfo[row + c];
+                if(sample <= sum) {
+                    break;
+                }
             }
         }
 
-        return edgeChoice;
+        return edgeChoice; // if rounding leaves sample above the sum this is the last unvisited candidate
     }
 }
@@ -0,0 +1,60 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// matrix of doubles that several threads can add to at once, for the pheromone of AntDensity and AntQuantity
+// when their ants step in parallel. each value is kept as its long bits in one flat row-major AtomicLongArray
+// and add is a compare-and-set loop, so no deposit is lost and no thread ever blocks
+// scale and fill are plain sweeps, they run between steps when nobody is adding
+class AtomicMatrix extends Matrix {
+    private final AtomicLongArray values; // [i * size + j] holds the bits of row i, column j
+
+    // constructor
+    AtomicMatrix(int size) {
+        super(size);
+        values = new AtomicLongArray(Math.multiplyExact(size, size));
+    }
+
+    @Override
+    public Storage getStorage() {
+        return Storage.ATOMIC;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        return Double.longBitsToDouble(values.get(i * size + j));
+    }
+
+    @Override
+    public void set(int i, int j, double value) {
+        values.set(i * size + j, Double.doubleToRawLongBits(value));
+    }
+
+    // retries until no other thread got in between the read and the write
+    @Override
+    public void add(int i, int j, double delta) {
+        int index = i * size + j;
+        long current;
+        do {
+            current = values.get(index);
+        } while(!values.compareAndSet(index, current, Double.doubleToRawLongBits(Double.longBitsToDouble(current) + delta)));
+    }
+
+    @Override
+    public void scale(double factor) {
+        for(int index = 0; index < values.length(); index++) {
+            values.lazySet(index, Double.doubleToRawLongBits(Double.longBitsToDouble(values.get(index)) * factor));
+        }
+    }
+
+    @Override
+    public void fill(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for(int index = 0; index < values.length(); index++) {
+            values.lazySet(index, bits);
+        }
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+}
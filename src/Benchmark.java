@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// benchmark harness for the ant systems -- times the hot methods and full cycles of every variant
+// and reports throughput and the bytes allocated per operation, by every thread the operation ran on
+// usage: java Benchmark [instances] [benchmarks]
+//  instances: comma separated burma14, oliver30 or randomN (N random cities), default burma14,oliver30,random1000
+//  benchmarks: comma separated names from BENCHMARKS, default all of them
+// -Dbench.warmup and -Dbench.time set the warm-up and measurement time per benchmark in ms,
+// -Dbench.iterations the number of measurement rounds
+public class Benchmark {
+    static final String[] BENCHMARKS = {"chooseEdge", "findSolutions", "evaporate", "pathLength",
+            "antDensity", "antQuantity", "antCycle", "antElitist", "antMaxMin", "antIslands", "antDensityParallel", "antCycleLocalSearch"};
+
+    private static final long WARMUP_MS = Long.getLong("bench.warmup", 1000);
+    private static final long MEASURE_MS = Long.getLong("bench.time", 1000);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final int LARGE_INSTANCE = 2000; // instances above this use candidate lists and sparse pheromone
+
+    // results of the operations end up here, so the jit can't drop the work as unused
+    static volatile double sink;
+
+    // something that's timed, run() is one operation and returns something it worked out
+    private interface Operation {
+        double run();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String[] instances = (args.length > 0 ? args[0] : "burma14,oliver30,random1000").split(",");
+        String[] benchmarks = args.length > 1 ? args[1].split(",") : BENCHMARKS;
+
+        System.out.println(String.format("%-12s %-18s %14s %14s %14s %12s",
+                "instance", "benchmark", "ops/s", "ns/op", "bytes/op", "MB/s alloc"));
+        for(String instance : instances) {
+            for(String benchmark : benchmarks) {
+                TSP tspInstance = loadInstance(instance);
+                Operation operation = makeOperation(benchmark, tspInstance);
+                measure(instance, benchmark, operation);
+            }
+        }
+    }
+
+    // the bundled instances or a random one, pheromone set up the same way Controller does
+    static TSP loadInstance(String name) throws IOException {
+        if(name.equals("burma14") || name.equals("oliver30")) {
+            return Controller.newRun(Controller.readInData("./data/" + name + ".tsp"));
+        }
+        if(!name.startsWith("random")) {
+            throw new IllegalArgumentException("Unexpected instance: " + name);
+        }
+
+        int size = Integer.parseInt(name.substring("random".length()));
+        Random random = new Random(size); // the same instance every time for a size
+        float[][] input = new float[size][2];
+        for(int i = 0; i < size; i++) {
+            input[i][0] = random.nextFloat() * 1000;
+            input[i][1] = random.nextFloat() * 1000;
+        }
+
+        TSP tspInstance;
+        if(size > LARGE_INSTANCE) {
+            tspInstance = new TSP(input, TSP.DEFAULT_CANDIDATES, DistanceProvider.Mode.CANDIDATES, Matrix.Storage.DOUBLE, Matrix.Storage.SPARSE);
+        } else {
+            tspInstance = new TSP(input);
+        }
+        tspInstance.getNodePheromone().fill(1.0f/size);
+        return tspInstance;
+    }
+
+    // large instances can't afford the n*n choice info of the full scan
+    private static void configure(AntSystem system, TSP tspInstance) {
+        system.setCandidateLists(tspInstance.getSize() > LARGE_INSTANCE);
+    }
+
+    // builds the operation for a benchmark name, the parameters are the ones Controller runs with
+    private static Operation makeOperation(String benchmark, final TSP tspInstance) {
+        switch(benchmark) {
+            case "chooseEdge": {
+                // one choice from every starting node in turn, on a colony that has just been set up
+                final AntCycle system = new AntCycle(tspInstance, 1.0f, 5.0f, 0.08f, 1, 1);
+                configure(system, tspInstance);
+                final ArrayList<Ant> ants = system.initializeAnts(tspInstance);
+                system.findSolutions(tspInstance, system.initializeAnts(tspInstance)); // fills the choice info
+                system.initializeAnts(tspInstance);
+                final double[] probabilities = system.getProbabilities(0);
+                return new Operation() {
+                    int next = 0;
+                    public double run() {
+                        int choice = system.chooseEdge(tspInstance, ants.get(next), probabilities);
+                        next = (next + 1) % ants.size();
+                        return choice;
+                    }
+                };
+            }
+            case "findSolutions": {
+                final AntCycle system = new AntCycle(tspInstance, 1.0f, 5.0f, 0.08f, 1, 1);
+                configure(system, tspInstance);
+                return new Operation() {
+                    public double run() {
+                        ArrayList<Ant> ants = system.initializeAnts(tspInstance);
+                        system.findSolutions(tspInstance, ants);
+                        return ants.get(0).getTourLength();
+                    }
+                };
+            }
+            case "evaporate": {
+                // evaporates half the pheromone then doubles it back in turn -- one sweep per operation, exact in
+                // binary so the values never drift towards denormals
+                final AntCycle system = new AntCycle(tspInstance, 1.0f, 5.0f, 0.08f, 1, 1);
+                return new Operation() {
+                    boolean halve = true;
+                    public double run() {
+                        if(halve) {
+                            system.evaporate(tspInstance, 0.5f);
+                        } else {
+                            tspInstance.getNodePheromone().scale(2.0);
+                        }
+                        halve = !halve;
+                        return tspInstance.getNodePheromone().get(0, 1);
+                    }
+                };
+            }
+            case "pathLength": {
+                final AntCycle system = new AntCycle(tspInstance, 1.0f, 5.0f, 0.08f, 1, 1);
+                configure(system, tspInstance);
+                final ArrayList<Ant> ants = system.initializeAnts(tspInstance);
+                system.findSolutions(tspInstance, ants);
+                return new Operation() {
+                    int next = 0;
+                    public double run() {
+                        double length = system.pathLength(tspInstance, ants.get(next));
+                        next = (next + 1) % ants.size();
+                        return length;
+                    }
+                };
+            }
+            case "antDensity": {
+                final AntDensity system = new AntDensity(tspInstance, 1.0f, 5.0f, 0.08f, 0.05, 1);
+                configure(system, tspInstance);
+                return new Operation() {
+                    public double run() {
+                        return system.cycle(1);
+                    }
+                };
+            }
+            case "antDensityParallel": {
+                // ants step in parallel on the common pool and deposit into an ATOMIC pheromone matrix
+                TSP atomicTSP = new TSP(tspInstance.getData(), Matrix.Storage.ATOMIC);
+                atomicTSP.getNodePheromone().fill(1.0f/tspInstance.getSize());
+                final AntDensity system = new AntDensity(atomicTSP, 1.0f, 5.0f, 0.08f, 0.05, 1);
+                configure(system, atomicTSP);
+                system.setParallel(true);
+                return new Operation() {
+                    public double run() {
+                        return system.cycle(1);
+                    }
+                };
+            }
+            case "antQuantity": {
+                final AntQuantity system = new AntQuantity(tspInstance, 1.0f, 5.0f, 0.08f, 1, 1);
+                configure(system, tspInstance);
+                return new Operation() {
+                    public double run() {
+                        return system.cycle(1);
+                    }
+                };
+            }
+            case "antCycle": {
+                final AntCycle system = new AntCycle(tspInstance, 1.0f, 5.0f, 0.08f, 1, 1);
+                configure(system, tspInstance);
+                return new Operation() {
+                    public double run() {
+                        return system.cycle(1);
+                    }
+                };
+            }
+            case "antCycleLocalSearch": {
+                // the same cycle with every tour put through 2-opt then Or-opt, on the common pool
+                final AntCycle system = new AntCycle(tspInstance, 1.0f, 5.0f, 0.08f, 1, 1);
+                configure(system, tspInstance);
+                system.setLocalSearch(new TwoOpt(), new OrOpt());
+                system.setParallel(true);
+                return new Operation() {
+                    public double run() {
+                        return system.cycle(1);
+                    }
+                };
+            }
+            case "antElitist": {
+                // cycleElite(1) also builds the starting tour and runs one extra cycle, so three rounds of construction
+                final AntElitist system = new AntElitist(tspInstance, 1.0f, 5.0f, 0.08f, 1, 1);
+                configure(system, tspInstance);
+                return new Operation() {
+                    public double run() {
+                        return system.cycleElite(1);
+                    }
+                };
+            }
+            case "antMaxMin": {
+                // cycleMaxMin(1) also resets the pheromone and builds the starting tour, so two rounds of construction
+                final AntMaxMin system = new AntMaxMin(tspInstance, 1.0f, 5.0f, 0.08f, 1, 1);
+                configure(system, tspInstance);
+                return new Operation() {
+                    public double run() {
+                        return system.cycleMaxMin(1);
+                    }
+                };
+            }
+            case "antIslands": {
+                // four AntCycle colonies, two cycles each with one ring migration in between
+                ArrayList<AntCycle> islands = new ArrayList<>();
+                for(int i = 0; i < 4; i++) {
+                    TSP islandTSP = new TSP(tspInstance.getData(), tspInstance.getSize() > LARGE_INSTANCE ? Matrix.Storage.SPARSE : Matrix.Storage.DOUBLE);
+                    islandTSP.getNodePheromone().fill(1.0f/tspInstance.getSize());
+                    AntCycle island = new AntCycle(islandTSP, 1.0f, 5.0f, 0.08f, 1, i);
+                    configure(island, islandTSP);
+                    islands.add(island);
+                }
+                final IslandModel model = new IslandModel(islands, IslandModel.Topology.RING, 1);
+                return new Operation() {
+                    public double run() {
+                        return model.solve(2);
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unexpected benchmark: " + benchmark);
+        }
+    }
+
+    // warms the operation up then runs ITERATIONS timed rounds, prints the average of the rounds
+    // the bytes are those allocated by every live thread, so the work an operation hands to a pool is counted too --
+    // along with whatever other threads of the jvm allocate at the time, and less what threads that end mid round did
+    private static void measure(String instance, String benchmark, Operation operation) {
+        com.sun.management.ThreadMXBean threads = CycleMetrics.allocationBean(); // null if the jvm can't count
+
+        runFor(operation, WARMUP_MS);
+
+        long operations = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for(int i = 0; i < ITERATIONS; i++) {
+            HashMap<Long, Long> startBytes = threads == null ? null : allocatedBytes(threads);
+            long start = System.nanoTime();
+            operations += runFor(operation, MEASURE_MS);
+            nanos += System.nanoTime() - start;
+            if(threads != null) {
+                bytes += allocatedSince(threads, startBytes);
+            }
+        }
+
+        double seconds = nanos / 1e9;
+        System.out.println(String.format("%-12s %-18s %14.1f %14.1f %14s %12s",
+                instance, benchmark, operations / seconds, nanos / (double) operations,
+                threads == null ? "n/a" : String.format("%.1f", bytes / (double) operations),
+                threads == null ? "n/a" : String.format("%.2f", bytes / seconds / (1024 * 1024))));
+    }
+
+    // bytes allocated so far by each live thread, by thread id
+    private static HashMap<Long, Long> allocatedBytes(com.sun.management.ThreadMXBean threads) {
+        long[] ids = threads.getAllThreadIds();
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        HashMap<Long, Long> bytes = new HashMap<>();
+        for(int t = 0; t < ids.length; t++) {
+            if(allocated[t] >= 0) { // -1 for a thread that ended in between
+                bytes.put(ids[t], allocated[t]);
+            }
+        }
+        return bytes;
+    }
+
+    // bytes allocated by the live threads since startBytes was taken, threads started since then count from zero
+    private static long allocatedSince(com.sun.management.ThreadMXBean threads, HashMap<Long, Long> startBytes) {
+        long bytes = 0;
+        for(Map.Entry<Long, Long> thread : allocatedBytes(threads).entrySet()) {
+            Long start = startBytes.get(thread.getKey());
+            bytes += thread.getValue() - (start == null ? 0 : start);
+        }
+        return bytes;
+    }
+
+    // runs the operation until millis have passed, at least once, returns how many times it ran
+    private static long runFor(Operation operation, long millis) {
+        long end = System.nanoTime() + millis * 1000000;
+        long operations = 0;
+        double results = 0;
+        do {
+            results += operation.run();
+            operations++;
+        } while(System.nanoTime() < end);
+        sink = results;
+        return operations;
+    }
+}
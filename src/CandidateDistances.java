@@ -0,0 +1,66 @@
+import java.util.Arrays;
+
+// keeps the distance from each node to its candidate neighbours and computes the rest on the fly
+// the ants mostly walk candidate edges so most lookups hit the cache, with n*k memory instead of n*n
+// each node's candidates sit in a small open addressing table of their own, so finding one takes a probe or two
+// whatever k is, rather than a search of the list
+class CandidateDistances implements DistanceProvider {
+    private static final int EMPTY = -1; // marks a free slot in a node's table
+
+    private final DistanceProvider source; // where the uncached distances come from
+    private final int[] columns; // [i * width + slot] the candidates of i spread over its table, EMPTY in the free slots
+    private final double[] candidateDistances; // the distance from i to the candidate in the same slot
+    private final int width; // slots in each node's table, a power of two at most two thirds full
+
+    // constructor
+    CandidateDistances(DistanceProvider source, int[][] candidateLists) {
+        this.source = source;
+        int k = candidateLists.length == 0 ? 0 : candidateLists[0].length;
+        int width = 1;
+        while(2 * width < 3 * k + 1) {
+            width *= 2;
+        }
+        this.width = width;
+        columns = new int[Math.multiplyExact(candidateLists.length, width)];
+        Arrays.fill(columns, EMPTY);
+        candidateDistances = new double[columns.length];
+
+        int mask = width - 1;
+        for(int i = 0; i < candidateLists.length; i++) {
+            for(int c = 0; c < k; c++) {
+                int j = candidateLists[i][c];
+                int slot = hash(j) & mask;
+                while(columns[i * width + slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                columns[i * width + slot] = j;
+                candidateDistances[i * width + slot] = source.get(i, j);
+            }
+        }
+    }
+
+    @Override
+    public double get(int i, int j) {
+        int row = i * width;
+        int mask = width - 1;
+        for(int slot = hash(j) & mask; ; slot = (slot + 1) & mask) {
+            int column = columns[row + slot];
+            if(column == j) {
+                return candidateDistances[row + slot];
+            }
+            if(column == EMPTY) {
+                return source.get(i, j);
+            }
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return source.getSize();
+    }
+
+    // spreads the node numbers over a table
+    private static int hash(int j) {
+        return j * 0x9E3779B9 >>> 7;
+    }
+}
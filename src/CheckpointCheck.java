@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+// self check of Checkpointer -- a run stopped at a checkpoint and restored into a new system has to end exactly
+// where the same run left alone does, every storage has to read back the pheromone it wrote, and a corrupt file
+// has to be an IOException that leaves the system as it was. prints a line per check and exits with 1 if any failed
+// usage: java CheckpointCheck
+public class CheckpointCheck {
+    private static final int SIZE = 60; // nodes of the random instance
+    private static final int CYCLES = 80; // cycles of a whole run
+    private static final int STOP = 53; // cycles before the run is stopped, past the last checkpoint
+    private static final int INTERVAL = 10; // cycles between checkpoints
+
+    private static final Matrix.Storage[] STORAGES = {Matrix.Storage.DOUBLE, Matrix.Storage.SYMMETRIC_FLOAT,
+            Matrix.Storage.SPARSE, Matrix.Storage.ATOMIC};
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws IOException {
+        TSPData data = randomInstance();
+        Path file = Files.createTempFile("checkpoint", ".bin");
+        try {
+            for(Kind kind : new Kind[] {Kind.CYCLE, Kind.ELITIST, Kind.MAX_MIN}) {
+                for(Matrix.Storage storage : STORAGES) {
+                    checkRestore(data, kind, storage, file.toString());
+                }
+            }
+            for(Matrix.Storage storage : Matrix.Storage.values()) {
+                checkMatrix(storage);
+            }
+            checkCorrupt(data, file.toString());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".tmp"));
+        }
+
+        System.out.println(failures == 0 ? "all checks passed" : failures + " checks failed");
+        if(failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    // the same instance every time
+    private static TSPData randomInstance() {
+        Random random = new Random(SIZE);
+        float[][] input = new float[SIZE][2];
+        for(int i = 0; i < SIZE; i++) {
+            input[i][0] = random.nextFloat() * 100;
+            input[i][1] = random.nextFloat() * 100;
+        }
+        return new TSPData(input, EdgeWeightType.EUCLIDEAN, 10, DistanceProvider.Mode.FULL, Matrix.Storage.DOUBLE);
+    }
+
+    // the variants that keep state between cycles, each with its own cycle loop
+    private enum Kind {
+        CYCLE, ELITIST, MAX_MIN;
+
+        AntCycle make(TSP tspInstance) {
+            switch(this) {
+                case CYCLE:
+                    return new AntCycle(tspInstance, 1.0f, 3.0f, 0.1f, 1, 11);
+                case ELITIST:
+                    return new AntElitist(tspInstance, 1.0f, 3.0f, 0.1f, 1, 11);
+                case MAX_MIN:
+                    return new AntMaxMin(tspInstance, 1.0f, 3.0f, 0.1f, 1, 11);
+                default:
+                    throw new IllegalStateException("Unexpected value: " + this);
+            }
+        }
+
+        double run(AntCycle system, int numOfCycles) {
+            switch(this) {
+                case CYCLE:
+                    return system.cycle(numOfCycles);
+                case ELITIST:
+                    return ((AntElitist) system).cycleElite(numOfCycles);
+                case MAX_MIN:
+                    return ((AntMaxMin) system).cycleMaxMin(numOfCycles);
+                default:
+                    throw new IllegalStateException("Unexpected value: " + this);
+            }
+        }
+    }
+
+    private static AntCycle newSystem(TSPData data, Kind kind, Matrix.Storage storage) {
+        TSP tspInstance = new TSP(data, storage);
+        tspInstance.getNodePheromone().fill(1.0 / data.getSize());
+        return kind.make(tspInstance);
+    }
+
+    // a whole run against one stopped after STOP cycles and carried on from its last checkpoint in a new system
+    private static void checkRestore(TSPData data, Kind kind, Matrix.Storage storage, String path) throws IOException {
+        AntCycle whole = newSystem(data, kind, storage);
+        double wholeLength = kind.run(whole, CYCLES);
+
+        AntCycle stopped = newSystem(data, kind, storage);
+        Checkpointer checkpointer = new Checkpointer(path, INTERVAL);
+        stopped.setCheckpointer(checkpointer);
+        kind.run(stopped, STOP);
+        checkpointer.close();
+
+        AntCycle restored = newSystem(data, kind, storage);
+        restored.restore(path);
+        double restoredLength = kind.run(restored, CYCLES);
+
+        boolean same = wholeLength == restoredLength
+                && whole.getProgress().getCycles() == restored.getProgress().getCycles()
+                && whole.getResult().getCycle() == restored.getResult().getCycle()
+                && Arrays.equals(whole.getResult().getTour(), restored.getResult().getTour())
+                && samePheromone(whole.tspInstance.getNodePheromone(), restored.tspInstance.getNodePheromone());
+        report(same, "restore " + kind + " " + storage + ": " + wholeLength + " " + restoredLength);
+    }
+
+    // values written to one matrix of storage and read back into another, including the evaporation a sparse
+    // matrix only keeps in its scale
+    private static void checkMatrix(Matrix.Storage storage) {
+        Random random = new Random(storage.ordinal());
+        Matrix matrix = Matrix.create(SIZE, storage);
+        matrix.fill(0.5);
+        for(int n = 0; n < 3 * SIZE; n++) {
+            matrix.add(random.nextInt(SIZE), random.nextInt(SIZE), random.nextDouble());
+        }
+        matrix.scale(0.9);
+        matrix.set(1, 2, 3.0);
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) matrix.snapshotBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        matrix.writeTo(buffer);
+        boolean filled = !buffer.hasRemaining();
+        buffer.flip();
+        Matrix read = Matrix.create(SIZE, storage);
+        read.fill(7.0); // anything not read back shows up
+        read.readFrom(buffer);
+        report(filled && !buffer.hasRemaining() && samePheromone(matrix, read), "matrix " + storage);
+    }
+
+    // a checkpoint with a node number out of range in the best tour, restoring it has to fail without touching
+    // the system
+    private static void checkCorrupt(TSPData data, String path) throws IOException {
+        AntCycle system = newSystem(data, Kind.CYCLE, Matrix.Storage.SPARSE);
+        Checkpointer checkpointer = new Checkpointer(path, INTERVAL);
+        system.setCheckpointer(checkpointer);
+        system.cycle(INTERVAL);
+        checkpointer.close();
+
+        Path file = Paths.get(path);
+        byte[] bytes = Files.readAllBytes(file);
+        int tour = Checkpointer.HEADER + 8 * system.getRandomSource().getState().length; // the best tour, see the layout
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(tour + 4, data.getSize());
+        Files.write(file, bytes);
+
+        AntCycle fresh = newSystem(data, Kind.CYCLE, Matrix.Storage.SPARSE);
+        Matrix pheromone = fresh.tspInstance.getNodePheromone();
+        boolean failed = false;
+        try {
+            fresh.restore(path);
+        } catch(IOException e) {
+            failed = true;
+        }
+        report(failed && fresh.tspInstance.getNodePheromone() == pheromone && fresh.getProgress().getCycles() == 0,
+                "corrupt checkpoint");
+    }
+
+    private static boolean samePheromone(Matrix a, Matrix b) {
+        for(int i = 0; i < a.getSize(); i++) {
+            for(int j = 0; j < a.getSize(); j++) {
+                if(a.get(i, j) != b.get(i, j)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void report(boolean passed, String check) {
+        System.out.println((passed ? "ok     " : "FAILED ") + check);
+        if(!passed) {
+            failures++;
+        }
+    }
+}
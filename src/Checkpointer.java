@@ -0,0 +1,297 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+// saves the state of a run every few cycles so a long run survives a crash or a redeploy -- the pheromone, the
+// random stream the ants are seeded from, the best tours and the cycle count. see AntSystem.setCheckpointer, and
+// AntSystem.restore to carry on from the file. a snapshot is copied into one of two buffers on the thread running
+// the system and written out on a background thread, so a cycle only waits for the copy -- unless the disk is
+// still busy with the snapshot before last. every write goes to a temporary file that's moved into place, so a
+// crash in the middle of one leaves the previous checkpoint as it was
+final class Checkpointer implements Closeable {
+    private static final long MAGIC = 0x41434F43484B5054L; // "ACOCHKPT"
+    private static final int VERSION = 2; // bump when the layout changes
+    static final int HEADER = 88; // bytes
+
+    // layout, little endian:
+    //  0 long magic       8 int version       12 int size
+    // 16 int pheromone storage ordinal        20 int words of random state
+    // 24 long cycles     32 long cycles since improvement     40 long elapsed nanos     48 long seed
+    // 56 int number of the system's own tours 60 int 1 if there's a best result, 0 if not
+    // 64 double best length   72 long best cycle   80 long best nanos
+    // 88 long[] random state
+    //    int[size] tour of the best result, if there is one
+    //    each of the system's own tours, see AntSystem.getCheckpointTours -- double length then int[size] path,
+    //    a NaN length and no path for one it doesn't have yet
+    //    the pheromone as its storage keeps it, see Matrix.writeTo
+
+    private final Path path;
+    private final Path temp; // written first and moved over path
+    private final int interval; // cycles between snapshots
+    private final ExecutorService writer; // one thread, so the writes land in order
+    private final ByteBuffer[] buffers = new ByteBuffer[2]; // the snapshot being written and the one being copied
+    private final Future<?>[] writes = new Future<?>[2]; // the write of each buffer, null if it has none
+    private int next = 0; // the buffer the next snapshot is copied into
+
+    // constructor, a snapshot goes to path at the end of every interval-th cycle of the run
+    Checkpointer(String path, int interval) {
+        if(interval < 1) {
+            throw new IllegalArgumentException("interval must be at least 1: " + interval);
+        }
+        this.path = Paths.get(path);
+        this.temp = Paths.get(path + ".tmp");
+        this.interval = interval;
+        // a daemon so a forgotten checkpointer doesn't keep the jvm up, close waits for the last write
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "checkpoint-writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // called by the system at the end of every cycle
+    void cycleDone(AntSystem system) {
+        if(system.getProgress().getCycles() % interval == 0) {
+            save(system);
+        }
+    }
+
+    // copies the state of system into the next buffer and hands it to the writer
+    void save(AntSystem system) {
+        await(next); // the writer may still have the buffer from the snapshot before last
+
+        TSP tspInstance = system.tspInstance;
+        Matrix pheromone = tspInstance.getNodePheromone();
+        long[] randomState = system.getRandomSource().getState();
+        Ant[] tours = system.getCheckpointTours();
+        Result best = system.getProgress().getResult();
+        int size = tspInstance.getSize();
+
+        long length = HEADER + 8L * randomState.length + (best == null ? 0 : 4L * size) + pheromone.snapshotBytes();
+        for(int t = 0; t < tours.length; t++) {
+            length += 8 + (tours[t] == null ? 0 : 4L * size);
+        }
+        if(length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("a snapshot of " + length + " bytes is too big for one buffer");
+        }
+        ByteBuffer buffer = buffers[next];
+        if(buffer == null || buffer.capacity() < length) {
+            buffer = ByteBuffer.allocateDirect((int) length).order(ByteOrder.LITTLE_ENDIAN);
+            buffers[next] = buffer;
+        }
+        buffer.clear();
+
+        RunProgress progress = system.getProgress();
+        buffer.putLong(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(size);
+        buffer.putInt(pheromone.getStorage().ordinal());
+        buffer.putInt(randomState.length);
+        buffer.putLong(progress.getCycles());
+        buffer.putLong(progress.getCyclesSinceImprovement());
+        buffer.putLong(progress.getElapsedNanos());
+        buffer.putLong(system.getSeed());
+        buffer.putInt(tours.length);
+        buffer.putInt(best == null ? 0 : 1);
+        buffer.putDouble(best == null ? Double.MAX_VALUE : best.getLength());
+        buffer.putLong(best == null ? 0 : best.getCycle());
+        buffer.putLong(best == null ? 0 : best.getNanos());
+
+        for(int w = 0; w < randomState.length; w++) {
+            buffer.putLong(randomState[w]);
+        }
+        if(best != null) {
+            for(int i = 0; i < size; i++) {
+                buffer.putInt(best.getNode(i));
+            }
+        }
+        for(int t = 0; t < tours.length; t++) {
+            if(tours[t] == null) {
+                buffer.putDouble(Double.NaN);
+                continue;
+            }
+            buffer.putDouble(tours[t].getTourLength());
+            buffer.asIntBuffer().put(tours[t].getPath());
+            buffer.position(buffer.position() + 4 * size);
+        }
+        pheromone.writeTo(buffer);
+        buffer.flip();
+
+        final ByteBuffer snapshot = buffer;
+        writes[next] = writer.submit(new Runnable() {
+            public void run() {
+                write(snapshot);
+            }
+        });
+        next ^= 1;
+    }
+
+    // on the writer thread -- a failed write is reported and the run goes on, the next snapshot tries again
+    private void write(ByteBuffer snapshot) {
+        try {
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while(snapshot.hasRemaining()) {
+                    channel.write(snapshot);
+                }
+                channel.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            System.err.println("Couldn't write checkpoint " + path + ": " + e.getMessage());
+        }
+    }
+
+    // waits for the pending write of buffers[b], if it has one
+    private void await(int b) {
+        if(writes[b] == null) {
+            return;
+        }
+        try {
+            writes[b].get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for a checkpoint write", e);
+        } catch(ExecutionException e) {
+            throw new IllegalStateException("checkpoint write failed", e.getCause());
+        }
+        writes[b] = null;
+    }
+
+    // waits until every snapshot taken so far is on disk
+    void flush() {
+        await(next ^ 1); // the older of the two goes first on the writer's thread
+        await(next);
+    }
+
+    // waits for the last write and stops the writer
+    @Override
+    public void close() {
+        flush();
+        writer.shutdown();
+    }
+
+    // puts system back in the state saved at path, see AntSystem.restore -- the system has to be on the same
+    // instance with the same pheromone storage, the same kind of random source and the same variant
+    static void restore(String path, AntSystem system) throws IOException {
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if(channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " isn't a checkpoint");
+            }
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if(buffer.getLong() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException(path + " isn't a checkpoint of this version");
+        }
+
+        try {
+            restore(buffer, system);
+        } catch(BufferUnderflowException e) {
+            throw new IOException(path + " is cut short");
+        } catch(IllegalArgumentException e) {
+            throw new IOException(path + " is corrupt: " + e.getMessage());
+        }
+    }
+
+    // reads the rest of the checkpoint after the version, a value that can't be right is an IllegalArgumentException
+    private static void restore(ByteBuffer buffer, AntSystem system) {
+        TSP tspInstance = system.tspInstance;
+        Matrix pheromone = tspInstance.getNodePheromone();
+        RandomSource random = system.getRandomSource();
+        int size = buffer.getInt();
+        int storage = buffer.getInt();
+        int words = buffer.getInt();
+        if(size != tspInstance.getSize()) {
+            throw new IllegalStateException("checkpoint is of " + size + " nodes, the system has " + tspInstance.getSize());
+        }
+        if(storage != pheromone.getStorage().ordinal()) {
+            throw new IllegalStateException("checkpoint pheromone isn't stored as " + pheromone.getStorage());
+        }
+        if(words != random.getState().length) {
+            throw new IllegalStateException("checkpoint was taken with another kind of random source");
+        }
+
+        long cycles = buffer.getLong();
+        long sinceImprovement = buffer.getLong();
+        long elapsedNanos = buffer.getLong();
+        long seed = buffer.getLong();
+        int tourCount = buffer.getInt();
+        boolean hasBest = buffer.getInt() != 0;
+        double bestLength = buffer.getDouble();
+        long bestCycle = buffer.getLong();
+        long bestNanos = buffer.getLong();
+        if(tourCount != system.getCheckpointTours().length) {
+            throw new IllegalStateException("checkpoint was taken by another variant");
+        }
+
+        long[] randomState = new long[words];
+        for(int w = 0; w < words; w++) {
+            randomState[w] = buffer.getLong();
+        }
+        boolean[] seen = new boolean[size]; // scratch for readTour
+        Result best = null;
+        if(hasBest) {
+            best = new Result(readTour(buffer, size, seen), bestLength, bestCycle, bestNanos);
+        }
+        Ant[] tours = new Ant[tourCount];
+        for(int t = 0; t < tourCount; t++) {
+            double length = buffer.getDouble();
+            if(Double.isNaN(length)) {
+                continue;
+            }
+            // walked again from the saved path so the visited set and the counts match, the length is the saved one
+            int[] tour = readTour(buffer, size, seen);
+            tours[t] = new Ant(size, 0);
+            tours[t].reset(tour[0]);
+            for(int i = 1; i < size; i++) {
+                tours[t].visitNode(tour[i]);
+            }
+            tours[t].tourChanged(length);
+        }
+
+        // the pheromone is read into a matrix of its own and swapped in with the rest, so nothing of the system
+        // is changed until the whole file has been read
+        Matrix restored = Matrix.create(size, pheromone.getStorage());
+        restored.readFrom(buffer);
+        tspInstance.setNodePheromone(restored);
+        system.setSeed(seed);
+        random.setState(randomState);
+        system.getProgress().restore(cycles, sinceImprovement, elapsedNanos, best);
+        system.restoreCheckpointTours(tours);
+    }
+
+    // a tour of size nodes, each of them once -- seen is scratch of the same size
+    private static int[] readTour(ByteBuffer buffer, int size, boolean[] seen) {
+        int[] tour = new int[size];
+        buffer.asIntBuffer().get(tour);
+        buffer.position(buffer.position() + 4 * size);
+        Arrays.fill(seen, false);
+        for(int i = 0; i < size; i++) {
+            if(tour[i] < 0 || tour[i] >= size || seen[tour[i]]) {
+                throw new IllegalArgumentException("a saved tour has node " + tour[i] + " where it can't");
+            }
+            seen[tour[i]] = true;
+        }
+        return tour;
+    }
+}
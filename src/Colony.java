@@ -0,0 +1,46 @@
+import java.util.ArrayList;
+
+// holds the ants of an AntSystem and the scratch buffers they choose with
+// everything is allocated once per system and reset between cycles so the cycle loop doesn't make garbage
+class Colony {
+    private final ArrayList<Ant> ants; // one ant per node of the TSP, reused every cycle
+    private final double[][] probabilities; // scratch probability buffer for each worker building tours -- [worker][node]
+
+    // constructor, workers is the number of threads that can build tours at the same time
+    // every ant gets its own stream of the same kind as random
+    Colony(int size, int workers, RandomSource random) {
+        ants = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            Ant currentAnt = new Ant(size, i);
+            currentAnt.setRandom(random.newStream());
+            ants.add(currentAnt);
+        }
+
+        probabilities = new double[workers][size];
+    }
+
+    // puts every ant back on its own startNode and hands it a fresh seed, returns the ants
+    ArrayList<Ant> reset(RandomSource seeder) {
+        for(int i = 0; i < ants.size(); i++) {
+            Ant currentAnt = ants.get(i);
+            currentAnt.reset(i); // we start an ant on each node of the TSP
+            currentAnt.setSeed(seeder.nextLong()); // seeds are handed out in ant order so they don't depend on the threads
+        }
+        return ants;
+    }
+
+    // scratch buffer of the given worker
+    double[] getProbabilities(int worker) {
+        return probabilities[worker];
+    }
+
+    // number of ants, which is the size of the TSP the colony was made for
+    int getSize() {
+        return ants.size();
+    }
+
+    // number of workers that have a scratch buffer
+    int getWorkers() {
+        return probabilities.length;
+    }
+}
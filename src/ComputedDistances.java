@@ -0,0 +1,25 @@
+// works out each distance from the node locations every time it's asked for -- no memory beyond the locations
+class ComputedDistances implements DistanceProvider {
+    private final float[][] nodeLocations; // [node][x, y]
+    private final EdgeWeightType edgeWeightType; // how a distance is worked out from two locations
+
+    // constructor
+    ComputedDistances(float[][] nodeLocations, EdgeWeightType edgeWeightType) {
+        this.nodeLocations = nodeLocations;
+        this.edgeWeightType = edgeWeightType;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        if(i == j) { // the same node, distance is 0
+            return 0;
+        }
+        return edgeWeightType.distance(nodeLocations[i][0], nodeLocations[i][1], nodeLocations[j][0], nodeLocations[j][1]);
+    }
+
+    @Override
+    public int getSize() {
+        return nodeLocations.length;
+    }
+
+}
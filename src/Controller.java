@@ -1,265 +1,85 @@
 import java.io.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 // manages Ant, TSP and initializing
 public class Controller {
 
-    // takes in data from .tsp file and constructs an instance of the TSP class with said data
-    private static TSP readInData() throws IOException {
-        // file input vars
-        File file = new File("./data/oliver30.tsp"); // oliver30 TSP is a standard tsp that is used in the literature
-        BufferedReader br = new BufferedReader(new FileReader(file));
-        String st;
-        int lineCount = 0;
-        int tspDimension = 0;
-
-        // matrix for TSP constructor -- [nodes][Xcoord, Ycoord]
-        float[][] input = new float[0][0];
-
-        while ((st = br.readLine()) != null) {
-            lineCount++;
-            // begin reading in nodes into matrix
-
-
-            // grab the dimension of the tsp
-            if (lineCount == 4) {
-                Pattern p = Pattern.compile("(\\d+)");
-                Matcher m = p.matcher(st);
-                m.find();
-                tspDimension = Integer.parseInt(m.group(1));
-
-                // set input dimension size
-                input = new float[tspDimension][2];
-            }
-
-            // works for burma14.tsp and oliver30.tsp and likely any of the tsps with the correct coordinate values
-            if (lineCount > 8 && lineCount < (9 + tspDimension)) {
-                // grab nodeNumber
-                String nodeNum = st;
-                nodeNum = nodeNum.replaceAll("(\\d+).+", "$1");
+    // reads in the oliver30 TSP, a standard tsp that is used in the literature
+    // measured with the unrounded euclidean distance this project has always used, the ~423.7 optimum quoted
+    // for oliver30 is of that distance, rather than the EUC_2D rounding in its header
+    private static TSPData readInData() throws IOException {
+        return InstanceCache.load("./data/oliver30.tsp", EdgeWeightType.EUCLIDEAN);
+    }
 
-                // grab the two float coordinates
-                Pattern p = Pattern.compile("(\\d+.\\d\\d)");
-                Matcher m = p.matcher(st);
-                m.find();
-                String xCoord = m.group(1);
-                m.find();
-                String yCoord = m.group(1);
+    // takes in data from .tsp file and builds the instance, done once and shared by every run
+    // the file is read by TSPLibReader so its EDGE_WEIGHT_TYPE decides the distances, after the first time
+    // the instance comes from the InstanceCache next to it
+    static TSPData readInData(String path) throws IOException {
+        return InstanceCache.load(path);
+    }
 
-                // take three strings and put into input matrix
-                int node = Integer.parseInt(nodeNum.trim()); // for correct position in matrix
-                input[node - 1][0] = Float.parseFloat(xCoord.trim()); // x
-                input[node - 1][1] = Float.parseFloat(yCoord.trim()); // y
-            }
-        }
-        TSP tspInstance = new TSP(input); // our TSP object
+    // a fresh TSP for one run on data, only its pheromone matrix is new
+    static TSP newRun(TSPData data) {
+        TSP tspInstance = new TSP(data); // our TSP object
 
-        float size = (float) input.length;
+        float size = (float) tspInstance.getSize();
         // set the starting pheromone for all edges
-        for(int i = 0; i < tspInstance.getSize(); i++) {
-            for(int j = 0; j < tspInstance.getSize(); j++) {
-                tspInstance.getNodePheromone()[i][j] = 1.0f/size; // starting pheromone is inversely proportional to size
-            }
-        }
+        tspInstance.getNodePheromone().fill(1.0f/size); // starting pheromone is inversely proportional to size
 
         return tspInstance;
     }
 
-    // AntSystem running function
+    // AntSystem running function, queues the runs on scheduler -- printRuns waits for them and prints the results
     // INPUT:
+    //  scheduler: runs them at the same time, each run gets its own pheromone on the scheduler's TSP instance
     //  antChoice: 0 - 4 , choose the type of system to run on the TSP
     //  alpha: the weight given to the pheromone value in the ant decision eqn, 1.0 to 5.0 range
     //  beta: the weight given to the shortestEdge value in the ant decision eqn, 1.0 to 5.0 range
     //  evaporationParam: the amount of evaporation that happens at the end of every tour, 0.0 to 1.0 range
     //  pherParam [Q]: the pheromone normalizer value which in the paper we refer to as Q
-    private static void runSystem(int antChoice, float alpha, float beta, float evaporationParam, double pherParam, int numOfCycles, int numOfRuns) throws IOException {
-
-        switch(antChoice) {
-            case 0: // antDensity
-                double tourSums = 0;
-                double bestTourOfRun = 10000;
-
-                // iterate antCycle solutions
-                for(int i = 0; i < numOfRuns; i++) {
-
-                    // init tsp
-                    TSP densityTSP = readInData();
-
-                    // init antDensity
-                    AntDensity antDensity = new AntDensity(densityTSP, alpha, beta, evaporationParam, pherParam);
-
-                    // run the cycle
-                    double currentBestTour = antDensity.cycle(numOfCycles);
-
-                    if(currentBestTour < bestTourOfRun) {
-                        bestTourOfRun = currentBestTour;
-                    }
-
-                    tourSums += currentBestTour;
-                }
-
-
-                System.out.println("=================== ANT-DENSITY ===================");
-                System.out.println("Run the system " + numOfRuns + " times with ");
-                System.out.println("Number of cycles: " + numOfCycles);
-                System.out.println("Best Tour found: " + bestTourOfRun);
-                System.out.println("AvgBestTour: " + tourSums/numOfRuns );
-                System.out.println();
-                break;
-
-            case 1: // antQuantity
-                tourSums = 0;
-                bestTourOfRun = 10000;
-
-                // iterate antCycle solutions
-                for(int i = 0; i < numOfRuns; i++) {
-
-                    // init tsp
-                    TSP quantityTSP = readInData();
-
-                    // init antQuantity
-                    AntQuantity antQuantity = new AntQuantity(quantityTSP, alpha, beta, evaporationParam, pherParam);
-
-                    // run the cycle
-                    double currentBestTour = antQuantity.cycle(numOfCycles);
-
-                    if(currentBestTour < bestTourOfRun) {
-                        bestTourOfRun = currentBestTour;
-                    }
-
-                    tourSums += currentBestTour;
-                }
-
-
-                System.out.println("=================== ANT-QUANTITY ===================");
-                System.out.println("Run the system " + numOfRuns + " times with ");
-                System.out.println("Number of cycles: " + numOfCycles);
-                System.out.println("Best Tour found: " + bestTourOfRun);
-                System.out.println("AvgBestTour: " + tourSums/numOfRuns );
-                System.out.println();
-                break;
-
-            case 2: // antCycle
-                tourSums = 0;
-                bestTourOfRun = 10000;
-
-                // iterate antCycle solutions
-                for(int i = 0; i < numOfRuns; i++) {
-
-                    // init tsp
-                    TSP cycleTSP = readInData();
-
-                    // init antDensity
-                    AntCycle antCycle = new AntCycle(cycleTSP, alpha, beta, evaporationParam, pherParam);
-
-                    // run the cycle
-                    double currentBestTour = antCycle.cycle(numOfCycles);
-
-                    if(currentBestTour < bestTourOfRun) {
-                        bestTourOfRun = currentBestTour;
-                    }
-
-                    tourSums += currentBestTour;
-                }
-
-
-                System.out.println("=================== ANT-CYCLE ===================");
-                System.out.println("Run the system " + numOfRuns + " times with ");
-                System.out.println("Number of cycles: " + numOfCycles);
-                System.out.println("Best Tour found: " + bestTourOfRun);
-                System.out.println("AvgBestTour: " + tourSums/numOfRuns );
-                System.out.println();
-                break;
-
-            case 3: // antElitist
-                tourSums = 0;
-                bestTourOfRun = 10000;
-
-                // iterate antCycle solutions
-                for(int i = 0; i < numOfRuns; i++) {
-
-                    // init tsp
-                    TSP elitistTSP = readInData();
-
-                    // init antDensity
-                    AntElitist antElitist = new AntElitist(elitistTSP, alpha, beta, evaporationParam, pherParam);
-
-                    // run the cycle
-                    double currentBestTour = antElitist.cycleElite(numOfCycles);
-
-                    if(currentBestTour < bestTourOfRun) {
-                        bestTourOfRun = currentBestTour;
-                    }
-
-                    tourSums += currentBestTour;
-                }
-
-
-                System.out.println("=================== ANT-ELITIST ===================");
-                System.out.println("Run the system " + numOfRuns + " times with ");
-                System.out.println("Number of cycles: " + numOfCycles);
-                System.out.println("Best Tour found: " + bestTourOfRun);
-                System.out.println("AvgBestTour: " + tourSums/numOfRuns );
-                System.out.println();
-                break;
-
-            case 4: // antMaxMin
-                tourSums = 0;
-                bestTourOfRun = 10000;
-
-                // iterate antCycle solutions
-                for(int i = 0; i < numOfRuns; i++) {
-
-                    // init tsp
-                    TSP maxMinTSP = readInData();
-
-                    // init antDensity
-                    AntMaxMin antMaxMin = new AntMaxMin(maxMinTSP, alpha, beta, evaporationParam, pherParam);
-
-                    // run the cycle
-                    double currentBestTour = antMaxMin.cycleMaxMin(numOfCycles);
-
-                    if(currentBestTour < bestTourOfRun) {
-                        bestTourOfRun = currentBestTour;
-                    }
-
-                    tourSums += currentBestTour;
-                }
-
-
-                System.out.println("=================== ANT-MAXMIN ===================");
-                System.out.println("Run the system " + numOfRuns + " times with ");
-                System.out.println("Number of cycles: " + numOfCycles);
-                System.out.println("Best Tour found: " + bestTourOfRun);
-                System.out.println("AvgBestTour: " + tourSums/numOfRuns );
-                System.out.println();
-                break;
-
-
-            default:
-                throw new IllegalStateException("Unexpected value: " + antChoice);
+    //  seed: run i is seeded with seed + i so any single run can be replayed
+    //  randomSource: the kind of random number generator the ants use, "splitmix" or "xoshiro"
+    private static RunScheduler.Runs runSystem(RunScheduler scheduler, int antChoice, float alpha, float beta, float evaporationParam, double pherParam, int numOfCycles, int numOfRuns, long seed, String randomSource) {
+        if(antChoice < 0 || antChoice >= Variant.values().length) {
+            throw new IllegalStateException("Unexpected value: " + antChoice);
         }
+        return scheduler.submitRuns(Variant.values()[antChoice], alpha, beta, evaporationParam, pherParam, numOfCycles, numOfRuns, seed, randomSource);
     }
 
+    // waits for the runs of a variant and prints the best and average tour
+    private static void printRuns(RunScheduler.Runs runs) {
+        System.out.println("=================== " + runs.getVariant().getTitle() + " ===================");
+        System.out.println("Run the system " + runs.getNumOfRuns() + " times with ");
+        System.out.println("Number of cycles: " + runs.getNumOfCycles());
+        System.out.println("Seed: " + runs.getSeed() + " (" + runs.getRandomSource() + ")");
+        System.out.println("Best Tour found: " + runs.getBest());
+        System.out.println("AvgBestTour: " + runs.getAverage());
+        System.out.println();
+    }
+
+    // args: [seed] [splitmix|xoshiro] -- without a seed the clock is used, it's printed so the runs can be replayed
     public static void main(String[] args) throws IOException {
 
         int numOfCycles = 200;
         int numOfRuns = 10;
-
-        // AntDensity
-        runSystem(0, 1.0f, 5.0f, 0.08f, 0.05, numOfCycles, numOfRuns);
-
-        // AntQuantity
-        runSystem(1, 1.0f, 5.0f, 0.08f, 1, numOfCycles, numOfRuns);
-
-        // AntCycle
-        runSystem(2, 1.0f, 5.0f, 0.08f, 1, numOfCycles, numOfRuns);
-
-        // AntElitist
-        runSystem(3, 1.0f, 5.0f, 0.08f, 1, numOfCycles, numOfRuns);
-
-        // AntMaxMin
-        runSystem(4, 1.0f, 5.0f, 0.08f, 1, numOfCycles, numOfRuns);
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+        String randomSource = args.length > 1 ? args[1] : "splitmix";
+        TSPData data = readInData(); // read once, each run only makes new pheromone
+        RunScheduler scheduler = new RunScheduler(data); // a run per core
+
+        // every run is queued before any results are printed so all the variants share the cores
+        RunScheduler.Runs[] variants = {
+                runSystem(scheduler, 0, 1.0f, 5.0f, 0.08f, 0.05, numOfCycles, numOfRuns, seed, randomSource), // AntDensity
+                runSystem(scheduler, 1, 1.0f, 5.0f, 0.08f, 1, numOfCycles, numOfRuns, seed, randomSource), // AntQuantity
+                runSystem(scheduler, 2, 1.0f, 5.0f, 0.08f, 1, numOfCycles, numOfRuns, seed, randomSource), // AntCycle
+                runSystem(scheduler, 3, 1.0f, 5.0f, 0.08f, 1, numOfCycles, numOfRuns, seed, randomSource), // AntElitist
+                runSystem(scheduler, 4, 1.0f, 5.0f, 0.08f, 1, numOfCycles, numOfRuns, seed, randomSource) // AntMaxMin
+        };
+        try {
+            for(RunScheduler.Runs runs : variants) {
+                printRuns(runs);
+            }
+        } finally {
+            scheduler.shutdown();
+        }
     }
 }
@@ -0,0 +1,6 @@
+// gets the metrics of every cycle of an AntSystem, see AntSystem.addCycleListener
+interface CycleListener {
+    // called on the thread running the system at the end of each cycle. metrics is filled in again next cycle,
+    // so anything kept past the call has to be copied out of it
+    void cycleFinished(AntSystem system, CycleMetrics metrics);
+}
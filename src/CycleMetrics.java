@@ -0,0 +1,182 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+// what happened in one cycle of an AntSystem -- where the time went, how good the tours were, how far the
+// pheromone has converged. one instance per system, filled in again every cycle and handed to its CycleListeners.
+// the cycle and restart counts are kept all the time, the rest is only measured while a system has listeners --
+// a listener added in the middle of a cycle gets the metrics from the next one on
+class CycleMetrics {
+    // the parts of a cycle that are timed
+    enum Phase {
+        CONSTRUCTION, // the ants building their tours, with the pheromone AntDensity and AntQuantity lay as they go
+        LOCAL_SEARCH, // the system's LocalSearch stage
+        EVALUATION, // finding the shortest tour, and the stagnation check of AntMaxMin
+        DEPOSIT, // laying the pheromone of the tours
+        EVAPORATION
+    }
+
+    static final double LAMBDA = 0.05; // lambda of the branching factor
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean(); // null if the jvm can't count
+
+    private long cycle = 0; // cycles the system has run, this one included
+    private final long[] nanos = new long[Phase.values().length]; // time spent in each phase -- [phase ordinal]
+    private double bestTour;
+    private double meanTour;
+    private double worstTour;
+    private double branchingFactor;
+    private boolean restarted; // the system restarted after stagnating this cycle
+    private long totalRestarts = 0;
+    private long allocatedBytes; // allocated by the thread running the cycle, -1 if the jvm can't count
+
+    private boolean measured; // this cycle is being timed
+    private long phaseStart; // when the running phase started
+    private long allocationStart;
+
+    // a new cycle has started, measure says whether it's timed
+    void start(boolean measure) {
+        cycle++;
+        restarted = false;
+        measured = measure;
+        if(!measure) {
+            return;
+        }
+        for(int p = 0; p < nanos.length; p++) {
+            nanos[p] = 0;
+        }
+        allocationStart = allocatedBytes();
+        phaseStart = System.nanoTime();
+    }
+
+    // true if this cycle has been timed since it started
+    boolean isMeasured() {
+        return measured;
+    }
+
+    // the phase that was running is done, the next one starts now
+    void phaseDone(Phase phase) {
+        if(!measured) {
+            return;
+        }
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - phaseStart;
+        phaseStart = now;
+    }
+
+    void restart() {
+        restarted = true;
+        totalRestarts++;
+    }
+
+    // works out the tour and pheromone statistics at the end of the cycle
+    void finish(TSP tspInstance, ArrayList<Ant> ants) {
+        bestTour = Double.MAX_VALUE;
+        worstTour = 0;
+        double sum = 0;
+        for(int i = 0; i < ants.size(); i++) {
+            double length = ants.get(i).getTourLength();
+            bestTour = Math.min(bestTour, length);
+            worstTour = Math.max(worstTour, length);
+            sum += length;
+        }
+        meanTour = sum / ants.size();
+        branchingFactor = branchingFactor(tspInstance);
+
+        long allocated = allocatedBytes();
+        allocatedBytes = allocated < 0 ? -1 : allocated - allocationStart;
+    }
+
+    // the lambda-branching factor over the candidate lists -- for each node the number of its candidate edges
+    // with pheromone above min + lambda * (max - min) of them, averaged over the nodes. it starts at k and falls
+    // towards 1 as the colony converges -- the tours lay pheromone one way, so a node keeps the edge out of it
+    // (2 on a symmetric matrix). O(n * k) so it's cheap next to a cycle
+    private static double branchingFactor(TSP tspInstance) {
+        Matrix pheromone = tspInstance.getNodePheromone();
+        int[][] candidateLists = tspInstance.getCandidateLists();
+        long branches = 0;
+        for(int i = 0; i < candidateLists.length; i++) {
+            int[] candidates = candidateLists[i];
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for(int c = 0; c < candidates.length; c++) {
+                double pher = pheromone.get(i, candidates[c]);
+                min = Math.min(min, pher);
+                max = Math.max(max, pher);
+            }
+            double cutoff = min + LAMBDA * (max - min);
+            for(int c = 0; c < candidates.length; c++) {
+                if(pheromone.get(i, candidates[c]) >= cutoff) {
+                    branches++;
+                }
+            }
+        }
+        return (double) branches / candidateLists.length;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // the thread bean with allocation counting on, null if the jvm can't count -- shared with Benchmark
+    static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+
+    // number of the cycle, counting every cycle the system has run
+    public long getCycle() {
+        return cycle;
+    }
+
+    // nanoseconds spent in phase this cycle
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    // nanoseconds of the whole cycle
+    public long getTotalNanos() {
+        long total = 0;
+        for(int p = 0; p < nanos.length; p++) {
+            total += nanos[p];
+        }
+        return total;
+    }
+
+    // length of the shortest tour of the cycle
+    public double getBestTour() {
+        return bestTour;
+    }
+
+    public double getMeanTour() {
+        return meanTour;
+    }
+
+    public double getWorstTour() {
+        return worstTour;
+    }
+
+    // lambda-branching factor of the pheromone after the cycle, see branchingFactor
+    public double getBranchingFactor() {
+        return branchingFactor;
+    }
+
+    // true if the system restarted after stagnating in this cycle
+    public boolean isRestarted() {
+        return restarted;
+    }
+
+    // restarts over every cycle the system has run
+    public long getTotalRestarts() {
+        return totalRestarts;
+    }
+
+    // bytes allocated during the cycle by the thread that ran it -- the executor's threads aren't counted --
+    // or -1 if the jvm doesn't count allocations
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+// collects the pheromone the tours of a cycle lay and writes it to the matrix in one pass ordered by row,
+// instead of a read-modify-write scattered over the matrix for every edge of every tour as it's evaluated.
+// the deposits on an edge are applied in the order they were added, so the pheromone comes out exactly as if
+// they had been written straight away. used by AntCycle, AntElitist and AntMaxMin
+class DepositBuffer {
+    private static final int MAX_ENTRIES = 1 << 20; // the buffer is applied early rather than grow past this
+
+    private int[] rows = new int[0]; // from node of each deposit
+    private int[] columns = new int[0]; // to node of each deposit
+    private double[] amounts = new double[0];
+    private int count = 0; // deposits waiting to be applied
+    private int[] order = new int[0]; // the deposits sorted by row, made by apply
+    private int[] rowStarts = new int[0]; // where each row's deposits start in order, [size] is the end
+
+    private Matrix pending; // the matrix the waiting deposits are for
+    private boolean clamped = false; // how the waiting deposits are applied, see addTour
+    private double minPheromone;
+    private double maxPheromone;
+
+    // queues amount on every edge of the closed tour path, for pheromone
+    void addTour(Matrix pheromone, int[] path, double amount) {
+        prepare(pheromone, false, 0, 0, path.length);
+        for(int k = 0; k < path.length; k++) {
+            // the last edge goes from the last node back to the starting node
+            add(path[k], path[k == path.length - 1 ? 0 : k + 1], amount);
+        }
+    }
+
+    // like addTour but every edge is kept between min and max the MaxMin way -- an edge already at or past
+    // a limit is set to that limit, otherwise amount is added
+    void addTourClamped(Matrix pheromone, int[] path, double amount, double min, double max) {
+        prepare(pheromone, true, min, max, path.length);
+        for(int k = 0; k < path.length; k++) {
+            add(path[k], path[k == path.length - 1 ? 0 : k + 1], amount);
+        }
+    }
+
+    // writes the waiting deposits to their matrix, row by row
+    void apply() {
+        if(count == 0) {
+            return;
+        }
+        int size = pending.getSize();
+        sortByRow(size);
+
+        for(int row = 0; row < size; row++) {
+            for(int e = rowStarts[row]; e < rowStarts[row + 1]; e++) {
+                int entry = order[e];
+                int column = columns[entry];
+                double currentPher = pending.get(row, column);
+                if(!clamped) {
+                    pending.set(row, column, currentPher + amounts[entry]);
+                } else if(currentPher <= minPheromone) { // at minPheromone, stay there
+                    pending.set(row, column, minPheromone);
+                } else if(currentPher >= maxPheromone) { // at maxPheromone, stay there
+                    pending.set(row, column, maxPheromone);
+                } else {
+                    pending.set(row, column, currentPher + amounts[entry]);
+                }
+            }
+        }
+        count = 0;
+    }
+
+    // number of deposits waiting to be applied
+    int size() {
+        return count;
+    }
+
+    // makes room for another tour, applying what's waiting first if it was for another matrix or mode or the
+    // buffer is full
+    private void prepare(Matrix pheromone, boolean clamped, double min, double max, int edges) {
+        if(count > 0 && (pheromone != pending || clamped != this.clamped || min != minPheromone
+                || max != maxPheromone || count + edges > Math.max(MAX_ENTRIES, edges))) {
+            apply();
+        }
+        pending = pheromone;
+        this.clamped = clamped;
+        minPheromone = min;
+        maxPheromone = max;
+
+        if(count + edges > rows.length) {
+            int capacity = Math.max(count + edges, Math.min(rows.length * 2, MAX_ENTRIES));
+            rows = Arrays.copyOf(rows, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+    }
+
+    private void add(int row, int column, double amount) {
+        rows[count] = row;
+        columns[count] = column;
+        amounts[count] = amount;
+        count++;
+    }
+
+    // counting sort of the waiting deposits by row into order, stable so each edge keeps its deposits' order
+    private void sortByRow(int size) {
+        if(rowStarts.length != size + 1) {
+            rowStarts = new int[size + 1];
+        } else {
+            Arrays.fill(rowStarts, 0);
+        }
+        if(order.length < count) {
+            order = new int[rows.length];
+        }
+
+        for(int e = 0; e < count; e++) {
+            rowStarts[rows[e] + 1]++;
+        }
+        for(int row = 0; row < size; row++) {
+            rowStarts[row + 1] += rowStarts[row];
+        }
+        // place each entry at its row's next free slot, then shift the starts back
+        for(int e = 0; e < count; e++) {
+            order[rowStarts[rows[e]]++] = e;
+        }
+        for(int row = size; row > 0; row--) {
+            rowStarts[row] = rowStarts[row - 1];
+        }
+        rowStarts[0] = 0;
+    }
+}
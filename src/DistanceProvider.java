@@ -0,0 +1,15 @@
+// gives the distance between two nodes of a TSP -- lets big instances skip the full n*n distance matrix
+interface DistanceProvider {
+    // how a TSP gets its distances
+    enum Mode {
+        FULL, // every distance computed once and kept in a matrix, n*n memory
+        COMPUTED, // every distance computed from the node locations when asked, no extra memory
+        CANDIDATES // the distances to each node's candidate neighbours are kept, the rest are computed, n*k memory
+    }
+
+    // distance from node i to node j
+    double get(int i, int j);
+
+    // number of nodes
+    int getSize();
+}
@@ -0,0 +1,71 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// matrix stored as one flat row-major array of doubles
+class DoubleMatrix extends Matrix {
+    protected final double[] values; // [i * size + j] holds row i, column j
+
+    // constructor
+    DoubleMatrix(int size) {
+        super(size);
+        values = new double[length(size)];
+    }
+
+    // number of entries the array needs
+    protected int length(int size) {
+        return Math.multiplyExact(size, size);
+    }
+
+    // position of row i, column j in the array
+    protected int index(int i, int j) {
+        return i * size + j;
+    }
+
+    @Override
+    public Storage getStorage() {
+        return Storage.DOUBLE;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        return values[index(i, j)];
+    }
+
+    @Override
+    public void set(int i, int j, double value) {
+        values[index(i, j)] = value;
+    }
+
+    @Override
+    public void add(int i, int j, double delta) {
+        values[index(i, j)] += delta;
+    }
+
+    // the array as it is, one bulk copy -- the upper triangle for a SymmetricMatrix
+    @Override
+    long snapshotBytes() {
+        return 8L * values.length;
+    }
+
+    @Override
+    void writeTo(ByteBuffer buffer) {
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+
+    @Override
+    void readFrom(ByteBuffer buffer) {
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+
+    @Override
+    public void scale(double factor) {
+        Kernels.scale(values, factor);
+    }
+
+    @Override
+    public void fill(double value) {
+        Arrays.fill(values, value);
+    }
+}
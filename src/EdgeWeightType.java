@@ -0,0 +1,61 @@
+// how the distance between two nodes is worked out from their coordinates -- the TSPLIB EDGE_WEIGHT_TYPEs
+// plus the plain euclidean distance this project has always used. EXPLICIT instances list their distances
+// instead, see TSPData.hasExplicitDistances
+enum EdgeWeightType {
+    EUCLIDEAN { // euclidean distance without rounding
+        double distance(float x1, float y1, float x2, float y2) {
+            float distance = 0;
+            distance += Math.pow(x2 - x1, 2.0);
+            distance += Math.pow(y2 - y1, 2.0);
+            return Math.sqrt(distance);
+        }
+    },
+    EUC_2D { // euclidean distance rounded to the nearest integer
+        double distance(float x1, float y1, float x2, float y2) {
+            double dx = x1 - x2;
+            double dy = y1 - y2;
+            return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+        }
+    },
+    CEIL_2D { // euclidean distance rounded up
+        double distance(float x1, float y1, float x2, float y2) {
+            double dx = x1 - x2;
+            double dy = y1 - y2;
+            return Math.ceil(Math.sqrt(dx * dx + dy * dy));
+        }
+    },
+    ATT { // pseudo-euclidean distance of the att48 and att532 instances
+        double distance(float x1, float y1, float x2, float y2) {
+            double dx = x1 - x2;
+            double dy = y1 - y2;
+            double r = Math.sqrt((dx * dx + dy * dy) / 10.0);
+            int t = (int) (r + 0.5);
+            return t < r ? t + 1 : t;
+        }
+    },
+    GEO { // great circle distance in km, the coordinates are latitude and longitude as DDD.MM
+        double distance(float x1, float y1, float x2, float y2) {
+            double latitude1 = radians(x1);
+            double longitude1 = radians(y1);
+            double latitude2 = radians(x2);
+            double longitude2 = radians(y2);
+            double q1 = Math.cos(longitude1 - longitude2);
+            double q2 = Math.cos(latitude1 - latitude2);
+            double q3 = Math.cos(latitude1 + latitude2);
+            return (int) (EARTH_RADIUS * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+        }
+    };
+
+    private static final double PI = 3.141592; // the value TSPLIB uses, so GEO distances match the published ones
+    private static final double EARTH_RADIUS = 6378.388;
+
+    // distance between (x1, y1) and (x2, y2)
+    abstract double distance(float x1, float y1, float x2, float y2);
+
+    // DDD.MM degrees and minutes to radians
+    private static double radians(float coordinate) {
+        int degrees = (int) coordinate;
+        double minutes = coordinate - degrees;
+        return PI * (degrees + 5.0 * minutes / 3.0) / 180.0;
+    }
+}
@@ -0,0 +1,71 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// matrix stored as one flat row-major array of floats -- half the memory of a DoubleMatrix for a bit of precision
+class FloatMatrix extends Matrix {
+    protected final float[] values; // [i * size + j] holds row i, column j
+
+    // constructor
+    FloatMatrix(int size) {
+        super(size);
+        values = new float[length(size)];
+    }
+
+    // number of entries the array needs
+    protected int length(int size) {
+        return Math.multiplyExact(size, size);
+    }
+
+    // position of row i, column j in the array
+    protected int index(int i, int j) {
+        return i * size + j;
+    }
+
+    @Override
+    public Storage getStorage() {
+        return Storage.FLOAT;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        return values[index(i, j)];
+    }
+
+    @Override
+    public void set(int i, int j, double value) {
+        values[index(i, j)] = (float) value;
+    }
+
+    @Override
+    public void add(int i, int j, double delta) {
+        values[index(i, j)] += delta;
+    }
+
+    // the array as it is, one bulk copy -- the upper triangle for a SymmetricFloatMatrix
+    @Override
+    long snapshotBytes() {
+        return 4L * values.length;
+    }
+
+    @Override
+    void writeTo(ByteBuffer buffer) {
+        buffer.asFloatBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    @Override
+    void readFrom(ByteBuffer buffer) {
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    @Override
+    public void scale(double factor) {
+        Kernels.scale(values, (float) factor);
+    }
+
+    @Override
+    public void fill(double value) {
+        Arrays.fill(values, (float) value);
+    }
+}
@@ -0,0 +1,281 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// binary cache of a built TSPData, kept next to the .tsp file with .cache added to its name, eg oliver30.tsp.cache
+// holds the node locations, the candidate lists and -- for FULL or EXPLICIT instances -- the distances, along
+// with a hash of the .tsp it was built from. the first load parses the .tsp and writes the cache, later loads
+// map the cache and read the distances where they lie, so startup skips parsing and the O(n^2) work.
+// a cache built from another .tsp or with other settings is rebuilt. -Daco.cache=off skips the cache
+final class InstanceCache {
+    static final boolean ENABLED = !"off".equals(System.getProperty("aco.cache")); // picked once at startup
+    private static final String SUFFIX = ".cache";
+    private static final long MAGIC = 0x41434F4341434845L; // "ACOCACHE"
+    private static final int VERSION = 3; // bump when the layout or the enums below change
+    private static final int HEADER = 48; // bytes, keeps the sections after it 8 byte aligned
+    private static final int HASH_CHUNK = 1 << 30; // bytes of the .tsp mapped at a time for the hash
+
+    // layout, little endian:
+    //  0 long magic       8 int version       12 int size
+    // 16 long .tsp hash  24 int requested k  28 int k
+    // 32 int distance mode ordinal  36 int distance storage ordinal  40 int edge weight type ordinal, -1 for EXPLICIT
+    // 44 int ordinal of the edge weight type asked for in place of the file's, -1 if none was
+    // 48 float[size][2] node locations, left out for EXPLICIT instances
+    //    int[size][k] candidate lists
+    //    distances as the storage keeps them -- double or float, full or upper triangle -- 8 byte aligned,
+    //    only for FULL or EXPLICIT instances
+
+    private InstanceCache() {
+    }
+
+    // the instance at path with the default candidate lists and a full double distance matrix
+    static TSPData load(String path) throws IOException {
+        return load(path, TSP.DEFAULT_CANDIDATES, DistanceProvider.Mode.FULL, Matrix.Storage.DOUBLE);
+    }
+
+    // the instance at path with its distances worked out with edgeWeightType instead of the file's
+    // EDGE_WEIGHT_TYPE, see TSPLibReader.read
+    static TSPData load(String path, EdgeWeightType edgeWeightType) throws IOException {
+        return load(path, edgeWeightType, TSP.DEFAULT_CANDIDATES, DistanceProvider.Mode.FULL, Matrix.Storage.DOUBLE);
+    }
+
+    static TSPData load(String path, int candidateListSize, DistanceProvider.Mode distanceMode,
+                        Matrix.Storage distanceStorage) throws IOException {
+        return load(path, null, candidateListSize, distanceMode, distanceStorage);
+    }
+
+    // the instance at path, from its cache when there's one for these settings, otherwise it's read with
+    // TSPLibReader and the cache written for next time. edgeWeightType null keeps the file's
+    static TSPData load(String path, EdgeWeightType edgeWeightType, int candidateListSize,
+                        DistanceProvider.Mode distanceMode, Matrix.Storage distanceStorage) throws IOException {
+        if(!ENABLED) {
+            return TSPLibReader.read(path, edgeWeightType, candidateListSize, distanceMode, distanceStorage);
+        }
+
+        long hash = hash(path);
+        Path cachePath = Paths.get(path + SUFFIX);
+        TSPData data = read(cachePath, hash, edgeWeightType, candidateListSize, distanceMode, distanceStorage);
+        if(data != null) {
+            return data;
+        }
+
+        data = TSPLibReader.read(path, edgeWeightType, candidateListSize, distanceMode, distanceStorage);
+        try {
+            write(cachePath, data, hash, edgeWeightType, candidateListSize, distanceMode, distanceStorage);
+        } catch(IOException e) {
+            // the instance is fine without its cache, the next load just builds it again
+            System.err.println("Couldn't write " + cachePath + ": " + e.getMessage());
+        }
+        return data;
+    }
+
+    // the cached instance, or null if there's no cache or it doesn't match the .tsp and the settings
+    private static TSPData read(Path cachePath, long hash, EdgeWeightType requested, int candidateListSize,
+                                DistanceProvider.Mode distanceMode, Matrix.Storage distanceStorage) throws IOException {
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            if(channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch(NoSuchFileException e) {
+            return null;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        int size = buffer.getInt(12);
+        int k = buffer.getInt(28);
+        int type = buffer.getInt(40);
+        if(buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION || buffer.getLong(16) != hash
+                || buffer.getInt(24) != candidateListSize || buffer.getInt(32) != distanceMode.ordinal()
+                || buffer.getInt(36) != distanceStorage.ordinal() || buffer.getInt(44) != ordinal(requested) || type < -1 || type >= EdgeWeightType.values().length
+                || size < 2 || k < 1 || k >= size) {
+            return null;
+        }
+        EdgeWeightType edgeWeightType = type < 0 ? null : EdgeWeightType.values()[type]; // null for EXPLICIT
+        if(buffer.capacity() != length(size, k, edgeWeightType, distanceMode, distanceStorage)) {
+            return null; // cut short
+        }
+
+        int position = HEADER;
+        float[][] nodeLocations = null;
+        if(edgeWeightType != null) {
+            nodeLocations = new float[size][2];
+            for(int i = 0; i < size; i++) {
+                nodeLocations[i][0] = buffer.getFloat(position);
+                nodeLocations[i][1] = buffer.getFloat(position + 4);
+                position += 8;
+            }
+        }
+
+        int[][] candidateLists = new int[size][k];
+        for(int i = 0; i < size; i++) {
+            for(int c = 0; c < k; c++) {
+                int candidate = buffer.getInt(position);
+                if(candidate < 0 || candidate >= size) {
+                    return null; // corrupt, the hash only covers the .tsp so it's rebuilt
+                }
+                candidateLists[i][c] = candidate;
+                position += 4;
+            }
+        }
+        position = align(position);
+
+        DistanceProvider nodeDistances;
+        if(storesDistances(edgeWeightType, distanceMode)) {
+            buffer.position(position);
+            ByteBuffer distances = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            boolean symmetric = symmetric(distanceStorage);
+            nodeDistances = floats(distanceStorage)
+                    ? new MappedDistances(distances.asFloatBuffer(), size, symmetric)
+                    : new MappedDistances(distances.asDoubleBuffer(), size, symmetric);
+        } else {
+            DistanceProvider computed = new ComputedDistances(nodeLocations, edgeWeightType);
+            nodeDistances = distanceMode == DistanceProvider.Mode.CANDIDATES
+                    ? new CandidateDistances(computed, candidateLists)
+                    : computed;
+        }
+        return new TSPData(nodeLocations, edgeWeightType, nodeDistances, candidateLists, distanceMode, distanceStorage);
+    }
+
+    // writes data to a temporary file next to cachePath and moves it into place, so another process
+    // never maps a cache that's half written
+    private static void write(Path cachePath, TSPData data, long hash, EdgeWeightType requested, int candidateListSize,
+                              DistanceProvider.Mode distanceMode, Matrix.Storage distanceStorage) throws IOException {
+        int size = data.getSize();
+        int k = data.getCandidateListSize();
+        EdgeWeightType edgeWeightType = data.getEdgeWeightType();
+        long length = length(size, k, edgeWeightType, distanceMode, distanceStorage);
+        if(length > Integer.MAX_VALUE) {
+            return; // too big to map in one go, such instances aren't cached
+        }
+
+        Path directory = cachePath.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, cachePath.getFileName().toString(), ".tmp");
+        try {
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+                buffer.putLong(0, MAGIC);
+                buffer.putInt(8, VERSION);
+                buffer.putInt(12, size);
+                buffer.putLong(16, hash);
+                buffer.putInt(24, candidateListSize);
+                buffer.putInt(28, k);
+                buffer.putInt(32, distanceMode.ordinal());
+                buffer.putInt(36, distanceStorage.ordinal());
+                buffer.putInt(40, ordinal(edgeWeightType));
+                buffer.putInt(44, ordinal(requested));
+
+                int position = HEADER;
+                if(edgeWeightType != null) {
+                    float[][] nodeLocations = data.getNodeLocations();
+                    for(int i = 0; i < size; i++) {
+                        buffer.putFloat(position, nodeLocations[i][0]);
+                        buffer.putFloat(position + 4, nodeLocations[i][1]);
+                        position += 8;
+                    }
+                }
+
+                int[][] candidateLists = data.getCandidateLists();
+                for(int i = 0; i < size; i++) {
+                    for(int c = 0; c < k; c++) {
+                        buffer.putInt(position, candidateLists[i][c]);
+                        position += 4;
+                    }
+                }
+                position = align(position);
+
+                if(storesDistances(edgeWeightType, distanceMode)) {
+                    DistanceProvider distances = data.getNodeDistances();
+                    boolean symmetric = symmetric(distanceStorage);
+                    boolean floats = floats(distanceStorage);
+                    for(int i = 0; i < size; i++) {
+                        for(int j = symmetric ? i : 0; j < size; j++) {
+                            int at = position + MappedDistances.index(i, j, size, symmetric) * (floats ? 4 : 8);
+                            if(floats) {
+                                buffer.putFloat(at, (float) distances.get(i, j));
+                            } else {
+                                buffer.putDouble(at, distances.get(i, j));
+                            }
+                        }
+                    }
+                }
+                buffer.force();
+            }
+            Files.move(temp, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // bytes of a cache with these settings
+    private static long length(int size, int k, EdgeWeightType edgeWeightType, DistanceProvider.Mode distanceMode,
+                               Matrix.Storage distanceStorage) {
+        long length = HEADER;
+        if(edgeWeightType != null) {
+            length += 8L * size;
+        }
+        length = align(length + 4L * size * k);
+        if(storesDistances(edgeWeightType, distanceMode)) {
+            length += MappedDistances.length(size, symmetric(distanceStorage)) * (floats(distanceStorage) ? 4 : 8);
+        }
+        return length;
+    }
+
+    // COMPUTED and CANDIDATES work the distances out from the locations, which EXPLICIT instances don't have
+    private static boolean storesDistances(EdgeWeightType edgeWeightType, DistanceProvider.Mode distanceMode) {
+        return distanceMode == DistanceProvider.Mode.FULL || edgeWeightType == null;
+    }
+
+    private static int ordinal(EdgeWeightType edgeWeightType) {
+        return edgeWeightType == null ? -1 : edgeWeightType.ordinal();
+    }
+
+    private static boolean symmetric(Matrix.Storage storage) {
+        return storage == Matrix.Storage.SYMMETRIC || storage == Matrix.Storage.SYMMETRIC_FLOAT;
+    }
+
+    private static boolean floats(Matrix.Storage storage) {
+        return storage == Matrix.Storage.FLOAT || storage == Matrix.Storage.SYMMETRIC_FLOAT;
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    // 64 bit hash of the contents of the file at path, eight bytes at a time through SplitMix64's mixer
+    static long hash(String path) throws IOException {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long length = channel.size();
+            long hash = SplitMix64.mix(length);
+            for(long start = 0; start < length; start += HASH_CHUNK) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(HASH_CHUNK, length - start));
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                int limit = buffer.limit();
+                int i = 0;
+                for(; i + 8 <= limit; i += 8) {
+                    hash = SplitMix64.mix(hash ^ buffer.getLong(i)) + SplitMix64.GOLDEN_GAMMA;
+                }
+                for(; i < limit; i++) {
+                    hash = SplitMix64.mix(hash ^ buffer.get(i)) + SplitMix64.GOLDEN_GAMMA;
+                }
+            }
+            return hash;
+        }
+    }
+}
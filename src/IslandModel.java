@@ -0,0 +1,208 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+// island model -- several colonies work on the same instance at once, each on its own thread with its own
+// pheromone, and every migrationInterval cycles each one sends its best-so-far tour to its neighbours, which
+// lay pheromone on it. the colonies never touch each other's matrices so there's nothing to contend on.
+// the colonies run migrationInterval cycles in parallel then the tours are swapped on the calling thread,
+// so a solve gives the same tours whatever the number of threads. the threads are made once and kept for every
+// solve, close stops them
+class IslandModel implements Closeable {
+    // which colonies a colony sends its best tour to
+    enum Topology {
+        RING, // colony i gets the tour of colony i - 1
+        FULL // every colony gets the best tour of all the others
+    }
+
+    private final ArrayList<AntCycle> islands; // AntCycle, AntElitist or AntMaxMin, each on its own TSP
+    private final Topology topology;
+    private final int migrationInterval; // cycles between migrations
+    private final ExecutorService executor; // one thread per island
+    private final ArrayList<Ant> outgoing = new ArrayList<>(); // copies of the tours being sent, one per island
+    private final double[] outgoingLengths;
+
+    // constructor, every island needs its own TSP so its own pheromone -- eg new TSP(data) on a shared TSPData
+    // and its own seed
+    IslandModel(List<? extends AntCycle> islands, Topology topology, int migrationInterval) {
+        if(islands.isEmpty()) {
+            throw new IllegalArgumentException("no islands");
+        }
+        if(migrationInterval < 1) {
+            throw new IllegalArgumentException("migrationInterval must be at least 1: " + migrationInterval);
+        }
+        for(int i = 0; i < islands.size(); i++) {
+            for(int j = 0; j < i; j++) {
+                if(islands.get(i).tspInstance == islands.get(j).tspInstance) {
+                    throw new IllegalArgumentException("islands " + j + " and " + i + " share a TSP");
+                }
+            }
+        }
+        this.islands = new ArrayList<>(islands);
+        this.topology = topology;
+        this.migrationInterval = migrationInterval;
+        this.outgoingLengths = new double[islands.size()];
+        // daemons so a model that's never closed doesn't keep the jvm up
+        this.executor = Executors.newFixedThreadPool(islands.size(), new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "island");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // runs numOfCycles cycles on every island, one thread per island, returns the shortest tour found by any of them
+    // each island is set up through beginRun like AntSystem.solve, so a fresh one starts a new run and one that had
+    // a checkpoint restored carries on from it
+    public double solve(int numOfCycles) {
+        runOnAll(new IslandTask() {
+            public void run(AntCycle island) {
+                island.beginRun();
+            }
+        });
+
+        for(int done = 0; done < numOfCycles; ) {
+            final int cycles = Math.min(migrationInterval, numOfCycles - done);
+            runOnAll(new IslandTask() {
+                public void run(AntCycle island) {
+                    for(int i = 0; i < cycles; i++) {
+                        island.runCycle();
+                    }
+                }
+            });
+            done += cycles;
+            if(done < numOfCycles) {
+                migrate();
+            }
+        }
+        return getBestTourLength();
+    }
+
+    // stops the island threads once the solve running has finished, the model can't solve again after
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    // the island that holds the shortest tour
+    private AntCycle bestIsland() {
+        AntCycle best = islands.get(0);
+        for(AntCycle island : islands) {
+            if(island.getBestTourLength() < best.getBestTourLength()) {
+                best = island;
+            }
+        }
+        return best;
+    }
+
+    // the shortest tour found by any island, null before solve
+    public Result getBestTour() {
+        return bestIsland().getBestTour();
+    }
+
+    // length of getBestTour
+    public double getBestTourLength() {
+        return bestIsland().getBestTourLength();
+    }
+
+    // the shortest tour any island has found in its run, null before solve
+    public Result getResult() {
+        Result best = null;
+        for(AntCycle island : islands) {
+            Result result = island.getResult();
+            if(result != null && (best == null || result.getLength() < best.getLength())) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    public List<AntCycle> getIslands() {
+        return islands;
+    }
+
+    // something done to one island
+    private interface IslandTask {
+        void run(AntCycle island);
+    }
+
+    // runs task on every island at the same time and waits for all of them
+    private void runOnAll(final IslandTask task) {
+        ArrayList<Callable<Void>> tasks = new ArrayList<>(islands.size());
+        for(final AntCycle island : islands) {
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    task.run(island);
+                    return null;
+                }
+            });
+        }
+
+        try {
+            for(Future<Void> future : executor.invokeAll(tasks)) {
+                future.get(); // rethrows anything that went wrong on an island
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while running the islands", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("island failed", e.getCause());
+        }
+    }
+
+    // copies every island's best tour first so an island's own new tour isn't passed straight on, then hands them out
+    // each island's tour is the size of its own tsp -- one that has had nodes added or removed only swaps tours
+    // with the islands of the same size, and an island with no tour of its current size sends nothing
+    private void migrate() {
+        for(int i = 0; i < islands.size(); i++) {
+            AntCycle island = islands.get(i);
+            int size = island.tspInstance.getSize();
+            if(outgoing.size() <= i) {
+                outgoing.add(new Ant(size, 0));
+            } else if(outgoing.get(i).getPath().length != size) {
+                outgoing.set(i, new Ant(size, 0));
+            }
+            Result best = island.getBestTour(); // the island's progress, the one record of its best tour
+            if(best != null && best.getSize() == size) {
+                outgoing.get(i).copyFrom(best);
+                outgoingLengths[i] = best.getLength();
+            } else {
+                outgoingLengths[i] = Double.MAX_VALUE;
+            }
+        }
+
+        int count = islands.size();
+        for(int i = 0; i < count; i++) {
+            int from = -1;
+            switch(topology) {
+                case RING:
+                    from = (i + count - 1) % count;
+                    break;
+                case FULL:
+                    for(int j = 0; j < count; j++) {
+                        if(j != i && fits(j, i) && (from < 0 || outgoingLengths[j] < outgoingLengths[from])) {
+                            from = j;
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected value: " + topology);
+            }
+            if(from >= 0 && from != i && outgoingLengths[from] < Double.MAX_VALUE && fits(from, i)) {
+                islands.get(i).receiveTour(outgoing.get(from), outgoingLengths[from]);
+            }
+        }
+    }
+
+    // true if the tour island from sends is a tour of island to's tsp
+    private boolean fits(int from, int to) {
+        return outgoing.get(from).getPath().length == islands.get(to).tspInstance.getSize();
+    }
+}
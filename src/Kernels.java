@@ -0,0 +1,94 @@
+// the inner loops of the ant systems -- evaporation, summing the choice probabilities and sampling from them
+// they are plain counted loops over flat arrays so the JIT's superword pass can turn them into SIMD code,
+// the blocked sum and sample also split the work into independent lanes so they aren't held up by one long
+// chain of dependent adds. run with -Daco.kernels=scalar to use the simple one-at-a-time loops instead
+final class Kernels {
+    static final boolean BLOCKED = !"scalar".equals(System.getProperty("aco.kernels")); // picked once at startup
+    private static final int BLOCK = 8; // values summed together before the sampler checks the running sum
+
+    private Kernels() {
+    }
+
+    // multiplies every value by factor
+    static void scale(double[] values, double factor) {
+        for(int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+
+    // multiplies every value by factor
+    static void scale(float[] values, float factor) {
+        for(int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+
+    // sum of the first length values
+    static double sum(double[] values, int length) {
+        if(!BLOCKED) {
+            double sum = 0;
+            for(int i = 0; i < length; i++) {
+                sum += values[i];
+            }
+            return sum;
+        }
+
+        // four independent lanes, added together at the end
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        int i = 0;
+        for(; i + 3 < length; i += 4) {
+            sum0 += values[i];
+            sum1 += values[i + 1];
+            sum2 += values[i + 2];
+            sum3 += values[i + 3];
+        }
+        for(; i < length; i++) {
+            sum0 += values[i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    // index of the first positive value at which the running sum of the weights reaches threshold
+    // if rounding keeps the sum just below threshold the last positive weight is returned, -1 if there is none
+    static int sample(double[] weights, int length, double threshold) {
+        double running = 0;
+        int lastBlock = -1; // start of the last skipped block that had a positive weight
+        int i = 0;
+
+        // skip whole blocks that don't reach the threshold, their sum doesn't depend on the running sum
+        if(BLOCKED) {
+            for(; i + BLOCK <= length; i += BLOCK) {
+                double block = ((weights[i] + weights[i + 1]) + (weights[i + 2] + weights[i + 3]))
+                        + ((weights[i + 4] + weights[i + 5]) + (weights[i + 6] + weights[i + 7]));
+                if(block > 0) {
+                    if(running + block >= threshold) {
+                        break; // the choice is inside this block
+                    }
+                    lastBlock = i;
+                }
+                running += block;
+            }
+        }
+
+        int last = -1;
+        for(; i < length; i++) {
+            if(weights[i] > 0) {
+                running += weights[i];
+                last = i;
+                if(running >= threshold) {
+                    return i;
+                }
+            }
+        }
+
+        // rounding kept the sum below threshold, look for the last positive weight in the last skipped block
+        if(last < 0 && lastBlock >= 0) {
+            for(int j = lastBlock; j < lastBlock + BLOCK; j++) {
+                if(weights[j] > 0) {
+                    last = j;
+                }
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,9 @@
+// improves a tour after an ant has built it, before the pheromone is laid on it -- see AntSystem.setLocalSearch
+// a search keeps scratch buffers so one instance is only ever used by one thread at a time
+interface LocalSearch {
+    // improves the finished tour of ant in place, leaving its getTourLength up to date
+    void improve(TSP tspInstance, Ant ant);
+
+    // a search with the same settings and its own scratch buffers, one for every worker improving tours
+    LocalSearch newWorker();
+}
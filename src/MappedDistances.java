@@ -0,0 +1,56 @@
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+// distances read straight out of a memory mapped InstanceCache file, nothing is copied onto the heap
+// laid out like the matrix storages -- row-major, or the upper triangle of a symmetric matrix
+class MappedDistances implements DistanceProvider {
+    private final DoubleBuffer doubles; // the distances when they were stored as doubles, else null
+    private final FloatBuffer floats; // the distances when they were stored as floats, else null
+    private final int size;
+    private final boolean symmetric; // only the upper triangle, diagonal included, is stored
+
+    // constructor, over doubles
+    MappedDistances(DoubleBuffer doubles, int size, boolean symmetric) {
+        this.doubles = doubles;
+        this.floats = null;
+        this.size = size;
+        this.symmetric = symmetric;
+    }
+
+    // constructor, over floats
+    MappedDistances(FloatBuffer floats, int size, boolean symmetric) {
+        this.doubles = null;
+        this.floats = floats;
+        this.size = size;
+        this.symmetric = symmetric;
+    }
+
+    // number of distances stored for size nodes
+    static long length(int size, boolean symmetric) {
+        return symmetric ? (long) size * (size + 1) / 2 : (long) size * size;
+    }
+
+    // position of [i][j], the same as DoubleMatrix or SymmetricMatrix would use
+    static int index(int i, int j, int size, boolean symmetric) {
+        if(!symmetric) {
+            return i * size + j;
+        }
+        if(i > j) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+        return (int) ((long) i * size - (long) i * (i - 1) / 2) + (j - i);
+    }
+
+    @Override
+    public double get(int i, int j) {
+        int index = index(i, j, size, symmetric);
+        return doubles != null ? doubles.get(index) : floats.get(index);
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+}
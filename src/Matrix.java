@@ -0,0 +1,113 @@
+import java.nio.ByteBuffer;
+
+// square matrix indexed by node, the storage behind the distances and pheromone of a TSP
+// the values are kept in one flat row-major array instead of an array of rows so sweeps read contiguous memory
+abstract class Matrix {
+    // how the values of a matrix are stored -- the memory below is the matrix's own, the caches built from the
+    // pheromone (see TSP.updateChoiceInfo) are n*n doubles whichever storage it has
+    enum Storage {
+        DOUBLE, // n*n doubles
+        FLOAT, // n*n floats, half the memory of DOUBLE
+        SYMMETRIC, // upper triangle of doubles, [i][j] and [j][i] are the same entry
+        SYMMETRIC_FLOAT, // upper triangle of floats
+        SPARSE, // only the written edges are kept and evaporation is lazy, for the pheromone of large instances
+        ATOMIC // n*n doubles that many threads can add to at once, for parallel AntDensity and AntQuantity
+    }
+
+    protected final int size; // number of rows, which is also the number of columns
+
+    // constructor
+    protected Matrix(int size) {
+        this.size = size;
+    }
+
+    // makes an empty size*size matrix with the given storage
+    static Matrix create(int size, Storage storage) {
+        switch(storage) {
+            case DOUBLE:
+                return new DoubleMatrix(size);
+            case FLOAT:
+                return new FloatMatrix(size);
+            case SYMMETRIC:
+                return new SymmetricMatrix(size);
+            case SYMMETRIC_FLOAT:
+                return new SymmetricFloatMatrix(size);
+            case SPARSE:
+                return new SparseMatrix(size);
+            case ATOMIC:
+                return new AtomicMatrix(size);
+            default:
+                throw new IllegalStateException("Unexpected value: " + storage);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // how the matrix is stored
+    public abstract Storage getStorage();
+
+    // a newSize matrix with the same storage where [i][j] is this matrix's [oldIndex[i]][oldIndex[j]], used when
+    // nodes are added to or removed from a TSP. the rows and columns with an oldIndex of -1 are new and start at 0
+    Matrix remap(int newSize, int[] oldIndex) {
+        Matrix remapped = create(newSize, getStorage());
+        for(int i = 0; i < newSize; i++) {
+            if(oldIndex[i] < 0) {
+                continue;
+            }
+            for(int j = 0; j < newSize; j++) {
+                if(oldIndex[j] >= 0) {
+                    remapped.set(i, j, get(oldIndex[i], oldIndex[j]));
+                }
+            }
+        }
+        return remapped;
+    }
+
+    // bytes writeTo puts in the buffer, for the checkpoints of a run
+    long snapshotBytes() {
+        return 8L * size * size;
+    }
+
+    // puts every value into buffer from its position on and moves the position past them, as doubles row by row --
+    // the storages with a layout of their own copy that out instead, readFrom reads it back into the same storage
+    void writeTo(ByteBuffer buffer) {
+        for(int i = 0; i < size; i++) {
+            for(int j = 0; j < size; j++) {
+                buffer.putDouble(get(i, j));
+            }
+        }
+    }
+
+    // reads back what writeTo put, every value is overwritten
+    void readFrom(ByteBuffer buffer) {
+        for(int i = 0; i < size; i++) {
+            for(int j = 0; j < size; j++) {
+                set(i, j, buffer.getDouble());
+            }
+        }
+    }
+
+    // value at row i, column j
+    public abstract double get(int i, int j);
+
+    // sets the value at row i, column j
+    public abstract void set(int i, int j, double value);
+
+    // adds delta to the value at row i, column j
+    public void add(int i, int j, double delta) {
+        set(i, j, get(i, j) + delta);
+    }
+
+    // multiplies every value by factor, used for evaporation
+    public abstract void scale(double factor);
+
+    // sets every value to value
+    public abstract void fill(double value);
+
+    // true if several threads can add to the matrix at the same time without losing updates
+    public boolean isConcurrent() {
+        return false;
+    }
+}
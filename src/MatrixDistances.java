@@ -0,0 +1,29 @@
+// every distance worked out up front and kept in a matrix -- the fastest lookups but n*n memory
+class MatrixDistances implements DistanceProvider {
+    private final Matrix distances;
+
+    // constructor, fills a matrix of the given storage from the distances of source
+    MatrixDistances(DistanceProvider source, Matrix.Storage storage) {
+        distances = Matrix.create(source.getSize(), storage);
+        for(int i = 0; i < source.getSize(); i++) {
+            for(int j = 0; j < source.getSize(); j++) {
+                distances.set(i, j, source.get(i, j));
+            }
+        }
+    }
+
+    // constructor, uses the given matrix as it is -- for distances listed explicitly in a TSPLIB file
+    MatrixDistances(Matrix distances) {
+        this.distances = distances;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        return distances.get(i, j);
+    }
+
+    @Override
+    public int getSize() {
+        return distances.getSize();
+    }
+}
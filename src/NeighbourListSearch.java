@@ -0,0 +1,145 @@
+// base of the local searches that only try moves towards the candidate neighbours of a node, with a don't-look
+// bit for every node. all the nodes start in a queue; a node is taken off it and the moves around it are tried,
+// and it only goes back on when a move changes one of its edges -- so once the tour is close to a local optimum
+// most nodes are looked at once and a search is near linear in the size of the tour.
+// the tour is the ant's path array with the position of every node kept beside it, a move is made of reversals
+// that turn the shorter side round. the gains assume d(i, j) = d(j, i), so if the tour comes out no shorter
+// (eg on an ATSP) the ant's own tour is put back
+abstract class NeighbourListSearch implements LocalSearch {
+    static final double EPSILON = 1e-9; // a move has to gain more than this, so rounding can't make the search loop
+    private static final int MIN_SIZE = 8; // there's nothing worth searching on a handful of nodes
+
+    int[] tour; // the path being improved
+    int size;
+    DistanceProvider dist;
+    int[][] neighbours; // candidate lists of the TSP, sorted by distance
+    private int[] position = new int[0]; // index of each node in tour
+    private int[] queue = new int[0]; // circular queue of the nodes whose don't-look bit is off
+    private boolean[] queued = new boolean[0]; // false is a set don't-look bit
+    private int head = 0; // front of the queue
+    private int waiting = 0; // nodes in the queue
+    private int[] original = new int[0]; // the tour as the ant built it
+
+    // tries the moves around node, makes the first one that gains and wakes the nodes it touched
+    // returns true if a move was made
+    abstract boolean improveNode(int node);
+
+    public void improve(TSP tspInstance, Ant ant) {
+        size = tspInstance.getSize();
+        if(size < MIN_SIZE) {
+            return;
+        }
+        dist = tspInstance.getNodeDistances();
+        neighbours = tspInstance.getCandidateLists();
+        tour = ant.getPath();
+        if(position.length != size) {
+            position = new int[size];
+            queue = new int[size];
+            queued = new boolean[size];
+            original = new int[size];
+        }
+        System.arraycopy(tour, 0, original, 0, size);
+
+        // every node starts with its don't-look bit off, in tour order
+        for(int i = 0; i < size; i++) {
+            position[tour[i]] = i;
+            queue[i] = tour[i];
+            queued[tour[i]] = true;
+        }
+        head = 0;
+        waiting = size;
+
+        while(waiting > 0) {
+            int node = queue[head];
+            head = head + 1 == size ? 0 : head + 1;
+            waiting--;
+            queued[node] = false;
+            improveNode(node);
+        }
+
+        // measured the way AntSystem.pathLength does so the length is the same as walking the path
+        double length = 0;
+        for(int i = 0; i < size - 1; i++) {
+            length += dist.get(tour[i], tour[i + 1]);
+        }
+        length += dist.get(tour[size - 1], tour[0]);
+
+        if(length < ant.getTourLength()) {
+            ant.tourChanged(length);
+        } else {
+            System.arraycopy(original, 0, tour, 0, size);
+        }
+    }
+
+    // the node after node in the tour
+    int next(int node) {
+        int i = position[node] + 1;
+        return tour[i == size ? 0 : i];
+    }
+
+    // the node before node in the tour
+    int previous(int node) {
+        int i = position[node] - 1;
+        return tour[i < 0 ? size - 1 : i];
+    }
+
+    // the node after node going forwards, or before it going backwards
+    int step(int node, boolean forwards) {
+        return forwards ? next(node) : previous(node);
+    }
+
+    // turns node's don't-look bit off so it's looked at again
+    void wake(int node) {
+        if(!queued[node]) {
+            int tail = head + waiting;
+            queue[tail >= size ? tail - size : tail] = node;
+            waiting++;
+            queued[node] = true;
+        }
+    }
+
+    // replaces the edges t1-t2 and t3-t4 with t1-t3 and t2-t4 -- t2 has to follow t1 and t4 follow t3 going
+    // the same way round the tour, forwards or backwards
+    void twoOptMove(int t1, int t2, int t3, int t4) {
+        if(next(t1) == t2) {
+            reverse(t2, t3);
+        } else {
+            reverse(t3, t2); // going backwards, so forwards it's t4 t3 ... t2 t1
+        }
+    }
+
+    // reverses the part of the tour running forwards from from to to, or the rest of the tour when that's
+    // shorter -- which is the same tour going the other way round
+    private void reverse(int from, int to) {
+        int i = position[from];
+        int j = position[to];
+        int length = j - i;
+        if(length < 0) {
+            length += size;
+        }
+        length++; // nodes from i to j
+        if(2 * length > size) {
+            int start = j + 1 == size ? 0 : j + 1;
+            j = i == 0 ? size - 1 : i - 1;
+            i = start;
+            length = size - length;
+        }
+
+        for(int k = 0; k < length / 2; k++) {
+            int a = tour[i];
+            int b = tour[j];
+            tour[i] = b;
+            position[b] = i;
+            tour[j] = a;
+            position[a] = j;
+            i = i + 1 == size ? 0 : i + 1;
+            j = j == 0 ? size - 1 : j - 1;
+        }
+    }
+
+    // how far node is from start going forwards, or backwards
+    int offset(int start, int node, boolean forwards) {
+        int offset = forwards ? position[node] - position[start] : position[start] - position[node];
+        return offset < 0 ? offset + size : offset;
+    }
+}
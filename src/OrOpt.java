@@ -0,0 +1,92 @@
+// Or-opt -- moves a run of one to three nodes to another place in the tour, either way round.
+// the runs start at the node being looked at and go forwards or backwards from it, and they're only moved
+// next to a candidate neighbour of one of their ends that's nearer than what taking the run out saves
+class OrOpt extends NeighbourListSearch {
+    private static final int MAX_SEGMENT = 3; // longest run that's moved
+
+    // the run being tried, s1 ... s2 going one way round, with p before it and nx after it
+    private int s1;
+    private int s2;
+    private int p;
+    private int nx;
+    private int length;
+    private boolean forwards;
+
+    boolean improveNode(int a) {
+        for(int direction = 0; direction < 2; direction++) {
+            forwards = direction == 0;
+            s1 = a;
+            s2 = a;
+            p = step(a, !forwards);
+            for(length = 1; length <= MAX_SEGMENT; length++) {
+                if(length > 1) {
+                    s2 = step(s2, forwards);
+                }
+                nx = step(s2, forwards);
+                if(nx == p) {
+                    break; // the run is the whole rest of the tour
+                }
+
+                // what taking the run out and joining p to nx saves
+                double removed = dist.get(p, s1) + dist.get(s2, nx) - dist.get(p, nx);
+                if(removed <= EPSILON) {
+                    continue;
+                }
+                if(tryInsert(s1, removed) || (length > 1 && tryInsert(s2, removed))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // tries to put the run between a candidate of end and one of that candidate's tour neighbours
+    private boolean tryInsert(int end, double removed) {
+        int[] candidates = neighbours[end];
+        for(int n = 0; n < candidates.length; n++) {
+            int c = candidates[n];
+            if(dist.get(end, c) >= removed) {
+                break; // the candidates are sorted by distance, the further ones would add more than is saved
+            }
+            // the edge after c and the edge before it, going the same way as the run
+            if(tryEdge(c, step(c, forwards), removed) || tryEdge(step(c, !forwards), c, removed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // tries the run between x and y, y following x going the same way as the run, both ways round
+    private boolean tryEdge(int x, int y, double removed) {
+        if(y == p || offset(s1, x, forwards) < length || offset(s1, y, forwards) < length) {
+            return false; // the edge is next to or inside the run
+        }
+        double xy = dist.get(x, y);
+        boolean reversed;
+        if(removed - (dist.get(x, s2) + dist.get(s1, y) - xy) > EPSILON) {
+            reversed = true; // x s2 ... s1 y
+        } else if(removed - (dist.get(x, s1) + dist.get(s2, y) - xy) > EPSILON) {
+            reversed = false; // x s1 ... s2 y
+        } else {
+            return false;
+        }
+
+        // p s1 ... s2 nx ... x y becomes p nx ... x s2 ... s1 y in two 2-opt moves, and a third turns the run round
+        twoOptMove(p, s1, x, y);
+        twoOptMove(p, x, nx, s2);
+        if(!reversed && length > 1) {
+            twoOptMove(x, s2, s1, y);
+        }
+        wake(p);
+        wake(nx);
+        wake(s1);
+        wake(s2);
+        wake(x);
+        wake(y);
+        return true;
+    }
+
+    public LocalSearch newWorker() {
+        return new OrOpt();
+    }
+}
@@ -0,0 +1,35 @@
+// a seedable stream of random numbers -- the AntSystem owns one and seeds one for every ant from it
+// so that a run can be replayed bit-for-bit from its seed no matter how many threads build the tours
+interface RandomSource {
+    // restarts the stream from the given seed
+    void setSeed(long seed);
+
+    // next uniformly distributed long
+    long nextLong();
+
+    // next uniform sample in [0, 1)
+    double nextDouble();
+
+    // the words of state the stream is at, setState(getState()) later carries on from the same point -- for the
+    // checkpoints of a run
+    long[] getState();
+
+    // puts the stream back at a state from getState of a stream of the same kind
+    void setState(long[] state);
+
+    // a new stream of the same kind for an ant, it's seeded from this one with setSeed(nextLong()) every cycle
+    // so making it doesn't use up any of this stream
+    RandomSource newStream();
+
+    // makes a random source by name, "splitmix" or "xoshiro"
+    static RandomSource create(String name, long seed) {
+        switch(name) {
+            case "splitmix":
+                return new SplitMix64(seed);
+            case "xoshiro":
+                return new Xoshiro256(seed);
+            default:
+                throw new IllegalArgumentException("Unexpected random source: " + name);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.Arrays;
+
+// the best tour of a run -- the order the nodes are visited in, its length, and when in the run it was found.
+// immutable, a new one is only made when a run finds a shorter tour so reading it costs nothing
+public final class Result {
+    private final int[] tour; // node indices in visiting order, the tour closes from the last back to the first
+    private final double length;
+    private final long cycle; // the cycle of the run it was found in, counting from 1
+    private final long nanos; // time from the start of the run to the end of that cycle
+
+    Result(int[] tour, double length, long cycle, long nanos) {
+        this.tour = tour;
+        this.length = length;
+        this.cycle = cycle;
+        this.nanos = nanos;
+    }
+
+    // a copy of the tour
+    public int[] getTour() {
+        return tour.clone();
+    }
+
+    // the node visited ith, without copying the tour
+    public int getNode(int i) {
+        return tour[i];
+    }
+
+    // number of nodes in the tour
+    public int getSize() {
+        return tour.length;
+    }
+
+    public double getLength() {
+        return length;
+    }
+
+    public long getCycle() {
+        return cycle;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Result{length=" + length + ", cycle=" + cycle + ", ms=" + nanos / 1000000 + ", tour=" + Arrays.toString(tour) + "}";
+    }
+}
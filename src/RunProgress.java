@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+
+// how far the run of an AntSystem has got -- cycles, time, and the best tour found so far. the system updates it
+// at the end of every cycle and its TerminationPolicy reads it between cycles. the best tour can be read from any
+// thread while the run goes on, it's published as one immutable Result so the tour and its length always match
+class RunProgress {
+    private long startNanos = System.nanoTime();
+    private long cycles = 0; // cycles finished since the run started
+    private long lastImprovement = 0; // the cycle the best tour was found in
+    private ArrayList<Ant> lastAnts; // the ants of the last cycle, their tours stay put until the next one starts
+    private volatile Result best = null; // null until the first tour is in
+
+    // a new run is starting
+    void start() {
+        startNanos = System.nanoTime();
+        cycles = 0;
+        lastImprovement = 0;
+        lastAnts = null;
+        best = null;
+    }
+
+    // carries on from a run saved by a Checkpointer, as if its cycles had just run -- see AntSystem.restore
+    void restore(long cycles, long cyclesSinceImprovement, long elapsedNanos, Result best) {
+        startNanos = System.nanoTime() - elapsedNanos;
+        this.cycles = cycles;
+        lastImprovement = cycles - cyclesSinceImprovement;
+        lastAnts = null;
+        this.best = best;
+    }
+
+    // the tsp is size nodes now -- if nodes were added or removed since the best tour was found it's a tour of
+    // another instance, its length means nothing on this one so it's dropped and the next tour becomes the best
+    void checkSize(int size) {
+        Result current = best;
+        if(current != null && current.getSize() != size) {
+            best = null;
+            lastImprovement = cycles;
+        }
+    }
+
+    // a cycle has finished with the tours of ants, the shortest one is copied out if it beats the best so far
+    void cycleDone(ArrayList<Ant> ants) {
+        cycles++;
+        lastAnts = ants;
+
+        int shortest = 0;
+        for(int i = 1; i < ants.size(); i++) {
+            if(ants.get(i).getTourLength() < ants.get(shortest).getTourLength()) {
+                shortest = i;
+            }
+        }
+        offer(ants.get(shortest));
+    }
+
+    // tour becomes the best so far if it's shorter, eg one sent over from another colony
+    // only an improvement allocates, the copy is what other threads see
+    void offer(Ant tour) {
+        if(tour.getTourLength() < getBestLength()) {
+            best = new Result(tour.getPath().clone(), tour.getTourLength(), cycles, getElapsedNanos());
+            lastImprovement = cycles;
+        }
+    }
+
+    // cycles finished since the run started
+    public long getCycles() {
+        return cycles;
+    }
+
+    // nanoseconds since the run started
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    // cycles since the best tour was last improved, all of them if no tour has been found
+    public long getCyclesSinceImprovement() {
+        return cycles - lastImprovement;
+    }
+
+    // true if the tours of the last cycle have stagnated by detector's measure, false before the first cycle
+    public boolean isStagnated(StagnationDetector detector) {
+        return lastAnts != null && detector.isStagnated(lastAnts);
+    }
+
+    // the best tour found so far, null before the first cycle -- safe from any thread
+    public Result getResult() {
+        return best;
+    }
+
+    // length of the best tour found so far, Double.MAX_VALUE before the first cycle -- safe from any thread
+    public double getBestLength() {
+        Result current = best;
+        return current == null ? Double.MAX_VALUE : current.getLength();
+    }
+}
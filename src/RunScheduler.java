@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// runs independent solver runs at the same time on a fixed pool of threads, one run per thread
+// every run gets its own TSP on the shared TSPData, so its own pheromone, and its own seed,
+// so the results are the same as running them one after another
+class RunScheduler {
+    private final TSPData data; // the instance every run is on
+    private final ExecutorService executor;
+
+    // constructor, threads is the most runs that go at once
+    RunScheduler(TSPData data, int threads) {
+        this.data = data;
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    // constructor, one thread per core
+    RunScheduler(TSPData data) {
+        this(data, Runtime.getRuntime().availableProcessors());
+    }
+
+    // queues one run of variant seeded with seed, the future gives the best tour it found
+    Future<Double> submit(final Variant variant, final float alpha, final float beta, final float evaporationParam, final double pherParam,
+                          final int numOfCycles, final long seed, final String randomSource) {
+        return executor.submit(new Callable<Double>() {
+            public Double call() {
+                return variant.run(Controller.newRun(data), alpha, beta, evaporationParam, pherParam, numOfCycles, seed, randomSource);
+            }
+        });
+    }
+
+    // queues numOfRuns runs of variant, run i is seeded with seed + i so any single run can be replayed
+    Runs submitRuns(Variant variant, float alpha, float beta, float evaporationParam, double pherParam,
+                    int numOfCycles, int numOfRuns, long seed, String randomSource) {
+        Runs runs = new Runs(variant, numOfCycles, seed, randomSource);
+        for(int i = 0; i < numOfRuns; i++) {
+            runs.results.add(submit(variant, alpha, beta, evaporationParam, pherParam, numOfCycles, seed + i, randomSource));
+        }
+        return runs;
+    }
+
+    // lets the queued runs finish then stops the threads
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    // the runs of one variant queued by submitRuns, the getters wait for all of them to finish
+    static class Runs {
+        private final Variant variant;
+        private final int numOfCycles;
+        private final long seed; // seed of the first run
+        private final String randomSource;
+        private final ArrayList<Future<Double>> results = new ArrayList<>();
+
+        private Runs(Variant variant, int numOfCycles, long seed, String randomSource) {
+            this.variant = variant;
+            this.numOfCycles = numOfCycles;
+            this.seed = seed;
+            this.randomSource = randomSource;
+        }
+
+        // best tour of every run, in run order
+        double[] getTours() {
+            double[] tours = new double[results.size()];
+            try {
+                for(int i = 0; i < tours.length; i++) {
+                    tours[i] = results.get(i).get(); // rethrows anything that went wrong in the run
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for the runs", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(variant + " run failed", e.getCause());
+            }
+            return tours;
+        }
+
+        // shortest tour over all the runs
+        double getBest() {
+            double best = Double.MAX_VALUE;
+            for(double tour : getTours()) {
+                if(tour < best) {
+                    best = tour;
+                }
+            }
+            return best;
+        }
+
+        // average of the best tours of the runs
+        double getAverage() {
+            double tourSums = 0;
+            double[] tours = getTours();
+            for(double tour : tours) {
+                tourSums += tour;
+            }
+            return tourSums / tours.length;
+        }
+
+        int getNumOfRuns() {
+            return results.size();
+        }
+
+        Variant getVariant() {
+            return variant;
+        }
+
+        int getNumOfCycles() {
+            return numOfCycles;
+        }
+
+        long getSeed() {
+            return seed;
+        }
+
+        String getRandomSource() {
+            return randomSource;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// sparse pheromone store with lazy evaporation
+// every edge is worth scale * stored, edges that were never written share the stored value base,
+// only written edges get an entry in their row's hash table
+// scale(factor) just multiplies the global scale so evaporation is O(1) instead of a sweep over n*n edges,
+// the true value of an edge is only worked out when it's read
+class SparseMatrix extends Matrix {
+    private static final int EMPTY = -1; // marks a free slot in a row table
+    private static final double RENORMALIZE_BELOW = 1e-100; // scale is folded back into the entries below this
+
+    private double scale = 1; // global factor all stored values are multiplied by
+    private double base = 0; // stored value of every edge without an entry
+    private final int[][] columns; // per row open addressing table of the written columns, null until the row is written
+    private final double[][] stored; // the stored value of each written column, in step with columns
+    private final int[] counts; // number of entries in each row table
+
+    // constructor
+    SparseMatrix(int size) {
+        super(size);
+        columns = new int[size][];
+        stored = new double[size][];
+        counts = new int[size];
+    }
+
+    @Override
+    public Storage getStorage() {
+        return Storage.SPARSE;
+    }
+
+    @Override
+    public double get(int i, int j) {
+        int slot = find(i, j);
+        return scale * (slot < 0 ? base : stored[i][slot]);
+    }
+
+    @Override
+    public void set(int i, int j, double value) {
+        put(i, j, value / scale);
+    }
+
+    @Override
+    public void add(int i, int j, double delta) {
+        int slot = find(i, j);
+        put(i, j, (slot < 0 ? base : stored[i][slot]) + delta / scale);
+    }
+
+    // evaporation -- only the global scale changes, unless it gets small enough to lose precision
+    // a scale of zero or below would make set and add divide by zero or flip the sign of what they write,
+    // so such a factor goes into base and the entries straight away
+    @Override
+    public void scale(double factor) {
+        scale *= factor;
+        if(scale == 0) {
+            fill(0); // nothing is left, the entries can go
+        } else if(scale < RENORMALIZE_BELOW) {
+            renormalize();
+        }
+    }
+
+    // drops every entry, all edges share the same value again
+    @Override
+    public void fill(double value) {
+        for(int i = 0; i < size; i++) {
+            columns[i] = null;
+            stored[i] = null;
+            counts[i] = 0;
+        }
+        base = value;
+        scale = 1;
+    }
+
+    // only the entries are moved over, the edges without one -- the new ones included -- keep sharing base
+    @Override
+    Matrix remap(int newSize, int[] oldIndex) {
+        int[] newIndex = new int[size]; // where each old node went, -1 if it was removed
+        Arrays.fill(newIndex, -1);
+        for(int i = 0; i < newSize; i++) {
+            if(oldIndex[i] >= 0) {
+                newIndex[oldIndex[i]] = i;
+            }
+        }
+
+        SparseMatrix remapped = new SparseMatrix(newSize);
+        remapped.scale = scale;
+        remapped.base = base;
+        for(int i = 0; i < newSize; i++) {
+            int row = oldIndex[i];
+            if(row < 0 || columns[row] == null) {
+                continue;
+            }
+            for(int slot = 0; slot < columns[row].length; slot++) {
+                int column = columns[row][slot];
+                if(column != EMPTY && newIndex[column] >= 0) {
+                    remapped.put(i, newIndex[column], stored[row][slot]);
+                }
+            }
+        }
+        return remapped;
+    }
+
+    // scale and base, then each row's entry count and its entries as column and stored value
+    @Override
+    long snapshotBytes() {
+        return 16 + 4L * size + 12 * getEntryCount();
+    }
+
+    @Override
+    void writeTo(ByteBuffer buffer) {
+        buffer.putDouble(scale);
+        buffer.putDouble(base);
+        for(int i = 0; i < size; i++) {
+            buffer.putInt(counts[i]);
+            if(columns[i] == null) {
+                continue;
+            }
+            for(int slot = 0; slot < columns[i].length; slot++) {
+                if(columns[i][slot] != EMPTY) {
+                    buffer.putInt(columns[i][slot]);
+                    buffer.putDouble(stored[i][slot]);
+                }
+            }
+        }
+    }
+
+    // an entry count or column that can't be one of this matrix's is an IllegalArgumentException
+    @Override
+    void readFrom(ByteBuffer buffer) {
+        fill(0);
+        scale = buffer.getDouble();
+        base = buffer.getDouble();
+        for(int i = 0; i < size; i++) {
+            int count = buffer.getInt();
+            if(count < 0 || count > size) {
+                throw new IllegalArgumentException("row " + i + " can't have " + count + " entries");
+            }
+            for(int e = 0; e < count; e++) {
+                int column = buffer.getInt();
+                if(column < 0 || column >= size) {
+                    throw new IllegalArgumentException("row " + i + " has an entry in column " + column);
+                }
+                put(i, column, buffer.getDouble());
+            }
+        }
+    }
+
+    // number of edges that have their own entry
+    public long getEntryCount() {
+        long entries = 0;
+        for(int i = 0; i < size; i++) {
+            entries += counts[i];
+        }
+        return entries;
+    }
+
+    // multiplies the scale into base and every entry and resets it to 1
+    private void renormalize() {
+        base *= scale;
+        for(int i = 0; i < size; i++) {
+            if(columns[i] == null) {
+                continue;
+            }
+            for(int slot = 0; slot < columns[i].length; slot++) {
+                if(columns[i][slot] != EMPTY) {
+                    stored[i][slot] *= scale;
+                }
+            }
+        }
+        scale = 1;
+    }
+
+    // slot of column j in row i's table or -1 if it has no entry
+    private int find(int i, int j) {
+        int[] table = columns[i];
+        if(table == null) {
+            return -1;
+        }
+        int mask = table.length - 1;
+        for(int slot = hash(j) & mask; ; slot = (slot + 1) & mask) {
+            if(table[slot] == j) {
+                return slot;
+            }
+            if(table[slot] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    // writes the stored value of column j in row i, making the entry if needed
+    private void put(int i, int j, double value) {
+        if(columns[i] == null) {
+            columns[i] = new int[8];
+            Arrays.fill(columns[i], EMPTY);
+            stored[i] = new double[8];
+        } else if(2 * (counts[i] + 1) > columns[i].length) {
+            grow(i); // keep the table at most half full
+        }
+
+        int[] table = columns[i];
+        int mask = table.length - 1;
+        int slot = hash(j) & mask;
+        while(table[slot] != EMPTY && table[slot] != j) {
+            slot = (slot + 1) & mask;
+        }
+        if(table[slot] == EMPTY) {
+            table[slot] = j;
+            counts[i]++;
+        }
+        stored[i][slot] = value;
+    }
+
+    // doubles row i's table and puts the entries back in
+    private void grow(int i) {
+        int[] oldColumns = columns[i];
+        double[] oldStored = stored[i];
+        columns[i] = new int[oldColumns.length * 2];
+        Arrays.fill(columns[i], EMPTY);
+        stored[i] = new double[oldColumns.length * 2];
+        counts[i] = 0;
+
+        for(int slot = 0; slot < oldColumns.length; slot++) {
+            if(oldColumns[slot] != EMPTY) {
+                put(i, oldColumns[slot], oldStored[slot]);
+            }
+        }
+    }
+
+    // spreads the column numbers over the table
+    private static int hash(int j) {
+        return j * 0x9E3779B9 >>> 7;
+    }
+}
@@ -0,0 +1,51 @@
+// splitmix64 generator -- one long of state, the same stream java.util.SplittableRandom gives for a seed
+public class SplitMix64 implements RandomSource {
+    static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // odd constant the state is stepped by
+    private long state;
+
+    // constructor
+    public SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        this.state = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53; // top 53 bits as the fraction
+    }
+
+    @Override
+    public long[] getState() {
+        return new long[] {state};
+    }
+
+    @Override
+    public void setState(long[] state) {
+        if(state.length != 1) {
+            throw new IllegalArgumentException("splitmix64 has 1 word of state, not " + state.length);
+        }
+        this.state = state[0];
+    }
+
+    @Override
+    public RandomSource newStream() {
+        return new SplitMix64(0);
+    }
+
+    // scrambles the bits of z, also used to expand a single seed into several state words
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
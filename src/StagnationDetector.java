@@ -0,0 +1,71 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// tells when a colony's tours have converged, from the cached tour lengths of a cycle
+// the colony has stagnated when some ant's tour has more than fraction of the colony within tolerance of its
+// length (but not the same length). the lengths are sorted and a window slides along them, so a check is
+// O(m log m) rather than comparing every pair of ants. any AntSystem can use one, see AntSystem.setStagnationDetector
+class StagnationDetector {
+    private final double tolerance; // two tours closer than this have converged
+    private final double fraction; // share of the colony that has to be converged on one tour
+    private double[] sorted = new double[0]; // scratch copy of the lengths, reused every check
+
+    // constructor, the MaxMin settings are 2 and 0.4
+    StagnationDetector(double tolerance, double fraction) {
+        if(!(tolerance > 0)) {
+            throw new IllegalArgumentException("tolerance must be positive: " + tolerance);
+        }
+        if(!(fraction >= 0 && fraction < 1)) {
+            throw new IllegalArgumentException("fraction must be in [0, 1): " + fraction);
+        }
+        this.tolerance = tolerance;
+        this.fraction = fraction;
+    }
+
+    // true if the tours the ants have just built have stagnated, the tours must be finished -- see Ant.getTourLength
+    boolean isStagnated(ArrayList<Ant> ants) {
+        int m = ants.size();
+        if(m < 2) {
+            return false;
+        }
+        if(sorted.length != m) {
+            sorted = new double[m];
+        }
+        for(int i = 0; i < m; i++) {
+            sorted[i] = ants.get(i).getTourLength();
+        }
+        // the last ant is only compared against, never the one the others are counted around -- as the
+        // pairwise check always did, so MaxMin restarts on the same cycles
+        double lastLength = sorted[m - 1];
+        Arrays.sort(sorted);
+
+        double threshold = fraction * m;
+        int lo = 0; // first length within tolerance below the current one
+        int hi = 0; // first length that isn't within tolerance above the current one
+        for(int start = 0; start < m; ) {
+            double length = sorted[start];
+            int end = start + 1; // the lengths equal to this one are [start, end)
+            while(end < m && sorted[end] == length) {
+                end++;
+            }
+
+            if(end - start > 1 || length != lastLength) {
+                while(length - sorted[lo] >= tolerance) {
+                    lo++;
+                }
+                if(hi < end) {
+                    hi = end;
+                }
+                while(hi < m && sorted[hi] - length < tolerance) {
+                    hi++;
+                }
+                // the tours of the same length don't count, they're the same tour or a different one that ties
+                if(hi - lo - (end - start) > threshold) {
+                    return true;
+                }
+            }
+            start = end;
+        }
+        return false;
+    }
+}
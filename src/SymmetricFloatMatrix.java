@@ -0,0 +1,29 @@
+// symmetric matrix of floats, only the upper triangle (diagonal included) is stored -- a quarter of a DoubleMatrix
+class SymmetricFloatMatrix extends FloatMatrix {
+    // constructor
+    SymmetricFloatMatrix(int size) {
+        super(size);
+    }
+
+    @Override
+    public Storage getStorage() {
+        return Storage.SYMMETRIC_FLOAT;
+    }
+
+    // n*(n+1)/2 entries for the upper triangle
+    @Override
+    protected int length(int size) {
+        return Math.toIntExact((long) size * (size + 1) / 2);
+    }
+
+    // row r of the triangle starts at r*size - r*(r-1)/2 and holds columns r..size-1
+    @Override
+    protected int index(int i, int j) {
+        if(i > j) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+        return (int) ((long) i * size - (long) i * (i - 1) / 2) + (j - i);
+    }
+}
@@ -1,34 +1,60 @@
 // Class for holding the Traveling Salesman Problem
+// the instance itself lives in a TSPData that runs can share, a TSP adds the per-run pheromone and choice info
 public class TSP {
-    private float[][] nodeLocations; // 2d array of x, y positions of each node -- [node][x, y]
-    private double[][] nodeDistances; // 2d array of the distance of each node to each. ie [node][each distance to every other node]
-    private double[][] nodePheromone; // 2d array of pheromone on each edge -- [node][each edge pheromone
+    private TSPData data; // node locations, distances and candidate lists, never changed by a run -- addNode and the
+                          // like swap in a changed copy
+    private Matrix nodePheromone; // pheromone on each edge -- [node][each edge pheromone]
+    private double[] choiceInfo; // cached pheromone^alpha * (1/distance)^beta of each edge, flat row-major -- [i * size + j]
+    private double[] heuristicInfo; // (1/distance)^beta of each edge from data, flat like choiceInfo
+    private double[] candidateChoiceInfo; // choice info of the candidate edges only -- [i * k + c] for the cth candidate of i
+    private double[] candidateHeuristicInfo; // heuristic info of the candidate edges from data, flat like candidateChoiceInfo
+    private int[][] candidateLists; // the nearest neighbours of each node sorted by distance -- [node][k nearest nodes]
+    private int candidateListSize; // k, the number of candidates of each node
     private int size; // size is number of cities in the TSP - ie number of nodes in the graph
 
+    static final int DEFAULT_CANDIDATES = 20; // size of the candidate lists when none is given
+
     // constructor
     TSP(float[][] input) {
-        nodeLocations = new float[input.length][2];
-        nodeDistances = new double[input.length][input.length];
-        nodePheromone = new double[input.length][input.length];
-        this.size = input.length;
-
-        // feed in coordinates into nodeLocations
-        for(int i = 0; i < input.length; i++) {
-           nodeLocations[i][0] = input[i][0];
-           nodeLocations[i][1] = input[i][1];
-        }
-
-        // initialize the distances between all nodes ie. the edge weights
-        for(int i = 0; i < nodeLocations.length; i++) {
-            for(int j = 0; j < nodeLocations.length; j++) {
-               if (j == i) { // we are comparing the same node, distance is 0
-                  nodeDistances[i][j] = 0;
-               } else {
-                   double distance = euclidieanDistance(nodeLocations[i][0], nodeLocations[i][1], nodeLocations[j][0], nodeLocations[j][1]);
-                   nodeDistances[i][j] = distance;
-               }
-            }
-        }
+        this(input, DEFAULT_CANDIDATES);
+    }
+
+    // constructor, candidateListSize is the number of nearest neighbours kept for each node
+    TSP(float[][] input, int candidateListSize) {
+        this(input, candidateListSize, Matrix.Storage.DOUBLE, Matrix.Storage.DOUBLE);
+    }
+
+    // constructor, also picks how the distance and pheromone matrices are stored
+    // FLOAT halves the memory of the matrices themselves and the SYMMETRIC ones halve it again -- the n*n choice
+    // and heuristic info of the full scan stay doubles whatever the storage, so a run only shrinks that much with
+    // candidate lists. symmetric pheromone means a deposit on [i][j] also lands on [j][i]
+    TSP(float[][] input, int candidateListSize, Matrix.Storage distanceStorage, Matrix.Storage pheromoneStorage) {
+        this(input, candidateListSize, DistanceProvider.Mode.FULL, distanceStorage, pheromoneStorage);
+    }
+
+    // constructor, also picks where the distances come from -- COMPUTED and CANDIDATES never build the
+    // n*n distance matrix, so distanceStorage is only used by FULL
+    TSP(float[][] input, int candidateListSize, DistanceProvider.Mode distanceMode, Matrix.Storage distanceStorage, Matrix.Storage pheromoneStorage) {
+        this(new TSPData(input, EdgeWeightType.EUCLIDEAN, candidateListSize, distanceMode, distanceStorage), pheromoneStorage);
+    }
+
+    // constructor for a run on an instance that has already been built, only the pheromone matrix is made
+    TSP(TSPData data) {
+        this(data, Matrix.Storage.DOUBLE);
+    }
+
+    // constructor for a run on an instance that has already been built, with the given pheromone storage
+    TSP(TSPData data, Matrix.Storage pheromoneStorage) {
+        this.data = data;
+        this.size = data.getSize();
+        this.candidateLists = data.getCandidateLists();
+        this.candidateListSize = data.getCandidateListSize();
+        nodePheromone = Matrix.create(size, pheromoneStorage);
+    }
+
+    // returns the instance this run is on
+    public TSPData getData() {
+        return data;
     }
 
     // size getter
@@ -36,27 +62,197 @@ public class TSP {
         return size;
     }
 
-    // for calculating the distance between nodes
-    private double euclidieanDistance(float x1, float y1, float x2, float y2) {
-       float distance = 0;
-       distance += Math.pow(x2 - x1, 2.0);
-       distance += Math.pow(y2 - y1, 2.0);
-       return Math.sqrt(distance);
+    // returns the pheromone matrix
+    public Matrix getNodePheromone() {
+        return nodePheromone;
     }
 
-    // returns the pheromone array
-    public double[][] getNodePheromone() {
-        return nodePheromone;
+    // swaps in another pheromone matrix of the same size and storage, eg one read back from a checkpoint
+    // the choice info follows it on the next update
+    void setNodePheromone(Matrix pheromone) {
+        if(pheromone.getSize() != size || pheromone.getStorage() != nodePheromone.getStorage()) {
+            throw new IllegalArgumentException("pheromone must be " + size + " nodes stored as " + nodePheromone.getStorage());
+        }
+        nodePheromone = pheromone;
+    }
+
+    // returns the flat choice info array, row i starts at i * size -- only valid after updateChoiceInfo
+    public double[] getChoiceInfo() {
+        return choiceInfo;
+    }
+
+    // returns the flat candidate choice info array, the cth candidate of i is at i * k + c
+    // only valid after updateCandidateChoiceInfo
+    public double[] getCandidateChoiceInfo() {
+        return candidateChoiceInfo;
+    }
+
+    // recomputes the choice info of every edge from the current pheromone, done once per cycle
+    // the n*n arrays are only made the first time this is called, the candidate list mode never needs them
+    public void updateChoiceInfo(float alpha, float beta) {
+        updateHeuristicInfo(beta);
+        for(int i = 0; i < size; i++) {
+            int row = i * size;
+            for(int j = 0; j < size; j++) {
+                choiceInfo[row + j] = pheromoneWeight(nodePheromone.get(i, j), alpha) * heuristicInfo[row + j];
+            }
+        }
+    }
+
+    // recomputes the choice info of the candidate edges only, enough when the ants choose from the candidate lists
+    public void updateCandidateChoiceInfo(float alpha, float beta) {
+        updateCandidateHeuristicInfo(beta);
+        for(int i = 0; i < size; i++) {
+            int[] candidates = candidateLists[i];
+            int row = i * candidateListSize;
+            for(int c = 0; c < candidateListSize; c++) {
+                candidateChoiceInfo[row + c] = pheromoneWeight(nodePheromone.get(i, candidates[c]), alpha) * candidateHeuristicInfo[row + c];
+            }
+        }
+    }
+
+    // recomputes the choice info of a single edge in whichever caches are in use,
+    // for the systems that lay pheromone while the ants step -- symmetric pheromone storage keeps one entry for
+    // both directions, so the reverse edge is brought up to date too
+    public void updateChoiceInfo(int i, int j, float alpha, float beta) {
+        updateEdgeChoiceInfo(i, j, alpha);
+        Matrix.Storage storage = nodePheromone.getStorage();
+        if(i != j && (storage == Matrix.Storage.SYMMETRIC || storage == Matrix.Storage.SYMMETRIC_FLOAT)) {
+            updateEdgeChoiceInfo(j, i, alpha);
+        }
+    }
+
+    // the choice info of the edge from i to j in whichever caches are in use
+    private void updateEdgeChoiceInfo(int i, int j, float alpha) {
+        if(choiceInfo != null) {
+            choiceInfo[i * size + j] = pheromoneWeight(nodePheromone.get(i, j), alpha) * heuristicInfo[i * size + j];
+        }
+        if(candidateChoiceInfo != null) {
+            int[] candidates = candidateLists[i];
+            for(int c = 0; c < candidateListSize; c++) {
+                if(candidates[c] == j) {
+                    int index = i * candidateListSize + c;
+                    candidateChoiceInfo[index] = pheromoneWeight(nodePheromone.get(i, j), alpha) * candidateHeuristicInfo[index];
+                    break;
+                }
+            }
+        }
+    }
+
+    // the heuristic part only changes with beta, the shared copy from data is used
+    // the n*n choice info array is only made the first time, the candidate list mode never needs it
+    private void updateHeuristicInfo(float beta) {
+        heuristicInfo = data.getHeuristicInfo(beta);
+        if(choiceInfo == null) {
+            choiceInfo = new double[heuristicInfo.length];
+        }
+    }
+
+    // same as updateHeuristicInfo for the candidate edges
+    private void updateCandidateHeuristicInfo(float beta) {
+        candidateHeuristicInfo = data.getCandidateHeuristicInfo(beta);
+        if(candidateChoiceInfo == null) {
+            candidateChoiceInfo = new double[candidateHeuristicInfo.length];
+        }
+    }
+
+    // pheromone^alpha, skipping the pow for the common alpha = 1
+    private static double pheromoneWeight(double pheromone, float alpha) {
+        return alpha == 1.0f ? pheromone : Math.pow(pheromone, alpha);
+    }
+
+    // adds a node at (x, y) to the instance and returns its index, which is the old size
+    // the pheromone already laid is kept and the edges of the new node start at the mean pheromone around it,
+    // so a run can carry on from where it was -- see AntSystem.resume. not to be called while a cycle is running
+    public int addNode(float x, float y) {
+        int node = size;
+        change(data.withNodeAdded(x, y), TSPData.addedIndex(size), node);
+        return node;
+    }
+
+    // removes node from the instance, the nodes after it move down one. the pheromone of the other edges is kept
+    public void removeNode(int node) {
+        change(data.withNodeRemoved(node), TSPData.removedIndex(size, node), -1);
+    }
+
+    // moves node to (x, y), its edges start again at the mean pheromone around it like a new node's
+    public void moveNode(int node, float x, float y) {
+        TSPData moved = data.withNodeMoved(node, x, y);
+        int[] oldIndex = TSPData.movedIndex(size);
+        oldIndex[node] = -1; // the pheromone goes as if it was removed and added again, none of its old edges are kept
+        change(moved, oldIndex, node);
+    }
+
+    // swaps in the changed instance -- oldIndex[i] is the node that i was, -1 if it's new, and changedNode is the
+    // one added or moved, -1 if there isn't one. the choice info is dropped and made again for the new size on the
+    // next update
+    private void change(TSPData changed, int[] oldIndex, int changedNode) {
+        Matrix pheromone = nodePheromone.remap(changed.getSize(), oldIndex);
+        data = changed;
+        size = changed.getSize();
+        candidateLists = changed.getCandidateLists();
+        candidateListSize = changed.getCandidateListSize();
+        nodePheromone = pheromone;
+        choiceInfo = null;
+        heuristicInfo = null;
+        candidateChoiceInfo = null;
+        candidateHeuristicInfo = null;
+        if(changedNode >= 0) {
+            initializeNode(changedNode);
+        }
+    }
+
+    // sets the pheromone of every edge of node to the mean pheromone of the candidate edges of its candidates,
+    // the level the ants will meet it at. its own candidate edges would still be the old ones for a moved node
+    private void initializeNode(int node) {
+        double sum = 0;
+        int count = 0;
+        int[] candidates = candidateLists[node];
+        for(int c = 0; c < candidateListSize; c++) {
+            int neighbour = candidates[c];
+            for(int d = 0; d < candidateListSize; d++) {
+                int j = candidateLists[neighbour][d];
+                if(j != node) {
+                    sum += nodePheromone.get(neighbour, j);
+                    count++;
+                }
+            }
+        }
+        double mean = count == 0 ? 0 : sum / count;
+        if(nodePheromone.getStorage() == Matrix.Storage.SPARSE) {
+            // only the candidate edges, the rest stay at the shared base value rather than filling the rows
+            for(int c = 0; c < candidateListSize; c++) {
+                nodePheromone.set(node, candidates[c], mean);
+                nodePheromone.set(candidates[c], node, mean);
+            }
+            return;
+        }
+        for(int j = 0; j < size; j++) {
+            if(j != node) {
+                nodePheromone.set(node, j, mean);
+                nodePheromone.set(j, node, mean);
+            }
+        }
+    }
+
+    // returns the candidate lists, the nearest neighbours of each node sorted by distance
+    public int[][] getCandidateLists() {
+        return candidateLists;
+    }
+
+    // returns k, the number of candidates of each node
+    public int getCandidateListSize() {
+        return candidateListSize;
     }
 
-    // returns the nodeLocations array
+    // returns the nodeLocations array, null when the distances were given explicitly
     public float[][] getNodeLocations() {
-        return nodeLocations;
+        return data.getNodeLocations();
     }
 
-    // returns the edge distances array
-    public double[][] getNodeDistances() {
-        return nodeDistances;
+    // returns where the edge distances come from
+    public DistanceProvider getNodeDistances() {
+        return data.getNodeDistances();
     }
 
 }
@@ -0,0 +1,396 @@
+import java.util.Arrays;
+
+// the parts of a Traveling Salesman Problem that never change during a run -- node locations, distances
+// and candidate lists. built once per instance and shared by every TSP made from it, so a new run only
+// has to make its own pheromone matrix
+public class TSPData {
+    private final float[][] nodeLocations; // 2d array of x, y positions of each node -- [node][x, y], null for explicit distances
+    private final DistanceProvider nodeDistances; // the distance of each node to each
+    private final EdgeWeightType edgeWeightType; // how the distances were worked out, null if they were given
+    private final DistanceProvider.Mode distanceMode; // how the distances are kept
+    private final Matrix.Storage distanceStorage; // the storage of the distance matrix, for FULL
+    private int[][] candidateLists; // the nearest neighbours of each node sorted by distance -- [node][k nearest nodes]
+    private int candidateListSize; // k, the number of candidates of each node
+    private final int size; // number of cities in the TSP - ie number of nodes in the graph
+
+    private double[] heuristicInfo; // cached (1/distance)^beta of each edge, flat row-major -- [i * size + j]
+    private float heuristicBeta = Float.NaN; // the beta that heuristicInfo was computed with
+    private double[] candidateHeuristicInfo; // heuristic info of the candidate edges only -- [i * k + c]
+    private float candidateHeuristicBeta = Float.NaN; // the beta that candidateHeuristicInfo was computed with
+
+    // constructor, works out the distances from the coordinates with edgeWeightType
+    // COMPUTED and CANDIDATES never build the n*n distance matrix, so distanceStorage is only used by FULL
+    TSPData(float[][] input, EdgeWeightType edgeWeightType, int candidateListSize, DistanceProvider.Mode distanceMode, Matrix.Storage distanceStorage) {
+        if(candidateListSize < 1) {
+            throw new IllegalArgumentException("candidateListSize must be at least 1: " + candidateListSize);
+        }
+        if(edgeWeightType == null) {
+            throw new IllegalArgumentException("no edgeWeightType to work the distances out with");
+        }
+        nodeLocations = new float[input.length][2];
+        this.edgeWeightType = edgeWeightType;
+        this.distanceMode = distanceMode;
+        this.distanceStorage = distanceStorage;
+        this.size = input.length;
+
+        // feed in coordinates into nodeLocations
+        for(int i = 0; i < input.length; i++) {
+           nodeLocations[i][0] = input[i][0];
+           nodeLocations[i][1] = input[i][1];
+        }
+
+        // the distances between all nodes ie. the edge weights
+        DistanceProvider computed = new ComputedDistances(nodeLocations, edgeWeightType);
+        switch(distanceMode) {
+            case FULL:
+                nodeDistances = new MatrixDistances(computed, distanceStorage);
+                buildCandidateLists(nodeDistances, Math.min(candidateListSize, size - 1));
+                break;
+            case COMPUTED:
+                nodeDistances = computed;
+                buildCandidateLists(nodeDistances, Math.min(candidateListSize, size - 1));
+                break;
+            case CANDIDATES:
+                // the candidate lists are found from the computed distances first
+                buildCandidateLists(computed, Math.min(candidateListSize, size - 1));
+                nodeDistances = new CandidateDistances(computed, candidateLists);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + distanceMode);
+        }
+    }
+
+    // constructor for an instance whose distances are given rather than worked out, eg an EDGE_WEIGHT_SECTION
+    // there are no coordinates so getNodeLocations returns null
+    TSPData(Matrix distances, int candidateListSize) {
+        if(candidateListSize < 1) {
+            throw new IllegalArgumentException("candidateListSize must be at least 1: " + candidateListSize);
+        }
+        nodeLocations = null;
+        edgeWeightType = null;
+        distanceMode = DistanceProvider.Mode.FULL;
+        distanceStorage = distances.getStorage();
+        this.size = distances.getSize();
+        nodeDistances = new MatrixDistances(distances);
+        buildCandidateLists(nodeDistances, Math.min(candidateListSize, size - 1));
+    }
+
+    // constructor from parts that were built already, eg read back from an InstanceCache -- nothing is copied
+    // distanceMode and distanceStorage say how nodeDistances keeps the distances
+    TSPData(float[][] nodeLocations, EdgeWeightType edgeWeightType, DistanceProvider nodeDistances, int[][] candidateLists,
+            DistanceProvider.Mode distanceMode, Matrix.Storage distanceStorage) {
+        this.nodeLocations = nodeLocations;
+        this.edgeWeightType = edgeWeightType;
+        this.distanceMode = distanceMode;
+        this.distanceStorage = distanceStorage;
+        this.nodeDistances = nodeDistances;
+        this.candidateLists = candidateLists;
+        this.candidateListSize = candidateLists.length == 0 ? 0 : candidateLists[0].length;
+        this.size = nodeDistances.getSize();
+    }
+
+    // finds the k nearest neighbours of every node
+    private void buildCandidateLists(DistanceProvider distances, int k) {
+        candidateListSize = k;
+        candidateLists = new int[size][k];
+        double[] candidateDist = new double[k]; // distances of the candidates, kept in step with them
+        for(int i = 0; i < size; i++) {
+            findCandidates(distances, i, candidateLists[i], candidateDist);
+        }
+    }
+
+    // fills candidates with the candidates.length nearest neighbours of node i sorted by distance, kept sorted
+    // with an insertion sort of the k best -- candidateDist is scratch of the same length
+    private static void findCandidates(DistanceProvider distances, int i, int[] candidates, double[] candidateDist) {
+        int k = candidates.length;
+        int found = 0;
+        for(int j = 0; j < distances.getSize(); j++) {
+            if(j == i) {
+                continue; // itself
+            }
+            double dist = distances.get(i, j);
+            if(found == k && dist >= candidateDist[k - 1]) {
+                continue; // further away than the current kth nearest
+            }
+
+            // shift the further candidates down and insert j in its place
+            int position = found < k ? found++ : k - 1;
+            while(position > 0 && candidateDist[position - 1] > dist) {
+                candidates[position] = candidates[position - 1];
+                candidateDist[position] = candidateDist[position - 1];
+                position--;
+            }
+            candidates[position] = j;
+            candidateDist[position] = dist;
+        }
+    }
+
+    // the instance with a node added at (x, y), it becomes node getSize() -- see derive
+    TSPData withNodeAdded(float x, float y) {
+        float[][] locations = Arrays.copyOf(requireLocations(), size + 1);
+        locations[size] = new float[] {x, y};
+        return derive(locations, addedIndex(size), size);
+    }
+
+    // the instance without node, the nodes after it move down one -- see derive
+    TSPData withNodeRemoved(int node) {
+        int[] oldIndex = removedIndex(size, node);
+        float[][] locations = null;
+        if(nodeLocations != null) {
+            locations = new float[size - 1][];
+            for(int i = 0; i < size - 1; i++) {
+                locations[i] = nodeLocations[oldIndex[i]];
+            }
+        }
+        return derive(locations, oldIndex, -1);
+    }
+
+    // the instance with node moved to (x, y) -- see derive
+    TSPData withNodeMoved(int node, float x, float y) {
+        checkNode(node);
+        float[][] locations = requireLocations().clone();
+        locations[node] = new float[] {x, y};
+        return derive(locations, movedIndex(size), node);
+    }
+
+    // where each node of an instance with a node added came from, -1 for the new last node
+    static int[] addedIndex(int size) {
+        int[] oldIndex = new int[size + 1];
+        for(int i = 0; i < size; i++) {
+            oldIndex[i] = i;
+        }
+        oldIndex[size] = -1;
+        return oldIndex;
+    }
+
+    // where each node of an instance with node removed came from
+    static int[] removedIndex(int size, int node) {
+        if(node < 0 || node >= size) {
+            throw new IllegalArgumentException("no node " + node + " in an instance of " + size);
+        }
+        if(size <= 3) {
+            throw new IllegalArgumentException("an instance needs at least 3 nodes");
+        }
+        int[] oldIndex = new int[size - 1];
+        for(int i = 0; i < size - 1; i++) {
+            oldIndex[i] = i < node ? i : i + 1;
+        }
+        return oldIndex;
+    }
+
+    // where each node of an instance with a node moved came from, which is where it is
+    static int[] movedIndex(int size) {
+        int[] oldIndex = new int[size];
+        for(int i = 0; i < size; i++) {
+            oldIndex[i] = i;
+        }
+        return oldIndex;
+    }
+
+    // a copy of this instance changed a few nodes at a time -- locations are the new node locations and
+    // oldIndex[i] is the node i was in this instance, -1 if it's new. changedNode is the node added or moved,
+    // the only one whose distances are worked out again, -1 if there isn't one.
+    // everything else is carried over: the distances and the heuristic info that were already there are copied
+    // rather than computed, and a candidate list is only searched again when it lost a node, otherwise the
+    // changed node is just slotted into it if it's near enough. the old instance is left as it was for the runs
+    // still on it
+    private TSPData derive(float[][] locations, int[] oldIndex, int changedNode) {
+        int newSize = oldIndex.length;
+        DistanceProvider computed = locations == null ? null : new ComputedDistances(locations, edgeWeightType);
+
+        DistanceProvider distances = computed; // the distances of the new instance, CANDIDATES wraps them later
+        if(distanceMode == DistanceProvider.Mode.FULL) {
+            Matrix matrix = Matrix.create(newSize, distanceStorage);
+            for(int i = 0; i < newSize; i++) {
+                for(int j = 0; j < newSize; j++) {
+                    matrix.set(i, j, i == changedNode || j == changedNode
+                            ? computed.get(i, j)
+                            : nodeDistances.get(oldIndex[i], oldIndex[j]));
+                }
+            }
+            distances = new MatrixDistances(matrix);
+        }
+
+        int[][] lists = deriveCandidateLists(distances, oldIndex, changedNode);
+        if(distanceMode == DistanceProvider.Mode.CANDIDATES) {
+            distances = new CandidateDistances(computed, lists);
+        }
+
+        TSPData derived = new TSPData(locations, edgeWeightType, distances, lists, distanceMode, distanceStorage);
+        derived.deriveHeuristicInfo(this, oldIndex, changedNode);
+        return derived;
+    }
+
+    // the candidate lists of the new instance of derive, from distances of the new instance
+    private int[][] deriveCandidateLists(DistanceProvider distances, int[] oldIndex, int changedNode) {
+        int newSize = oldIndex.length;
+        int k = Math.min(candidateListSize, newSize - 1);
+        int[][] lists = new int[newSize][k];
+        double[] candidateDist = new double[k];
+        if(k < candidateListSize) {
+            // too few nodes left for lists this long, they're all found again
+            for(int i = 0; i < newSize; i++) {
+                findCandidates(distances, i, lists[i], candidateDist);
+            }
+            return lists;
+        }
+
+        int[] newIndex = new int[size]; // where each old node went, -1 if it was removed
+        Arrays.fill(newIndex, -1);
+        for(int i = 0; i < newSize; i++) {
+            if(oldIndex[i] >= 0) {
+                newIndex[oldIndex[i]] = i;
+            }
+        }
+
+        for(int i = 0; i < newSize; i++) {
+            int[] list = lists[i];
+            if(i == changedNode || oldIndex[i] < 0) {
+                findCandidates(distances, i, list, candidateDist);
+                continue;
+            }
+
+            // the old list in the new numbering, unless it held a node that's gone or moved
+            int[] old = candidateLists[oldIndex[i]];
+            boolean lost = false;
+            for(int c = 0; c < k; c++) {
+                int j = newIndex[old[c]];
+                if(j < 0 || j == changedNode) {
+                    lost = true;
+                    break;
+                }
+                list[c] = j;
+            }
+            if(lost) {
+                findCandidates(distances, i, list, candidateDist);
+            } else if(changedNode >= 0) {
+                // slot the changed node in if it's nearer than the kth candidate
+                double dist = distances.get(i, changedNode);
+                if(dist < distances.get(i, list[k - 1])) {
+                    int position = k - 1;
+                    while(position > 0 && distances.get(i, list[position - 1]) > dist) {
+                        list[position] = list[position - 1];
+                        position--;
+                    }
+                    list[position] = changedNode;
+                }
+            }
+        }
+        return lists;
+    }
+
+    // carries the full heuristic info of old over to this instance of derive, if old had worked it out -- only
+    // the row and column of the changed node are computed. the candidate heuristic info is only n*k so it's
+    // left to be worked out on first use
+    private void deriveHeuristicInfo(TSPData old, int[] oldIndex, int changedNode) {
+        double[] oldInfo;
+        float beta;
+        synchronized(old) {
+            oldInfo = old.heuristicInfo;
+            beta = old.heuristicBeta;
+        }
+        if(oldInfo == null) {
+            return;
+        }
+
+        double[] info = new double[Math.multiplyExact(size, size)];
+        for(int i = 0; i < size; i++) {
+            for(int j = 0; j < size; j++) {
+                info[i * size + j] = i == changedNode || j == changedNode
+                        ? Math.pow(1/(nodeDistances.get(i, j)), beta) // 1/distance
+                        : oldInfo[oldIndex[i] * old.size + oldIndex[j]];
+            }
+        }
+        synchronized(this) {
+            heuristicInfo = info;
+            heuristicBeta = beta;
+        }
+    }
+
+    private float[][] requireLocations() {
+        if(nodeLocations == null) {
+            throw new IllegalStateException("the distances were given explicitly, there are no locations to place a node by");
+        }
+        return nodeLocations;
+    }
+
+    private void checkNode(int node) {
+        if(node < 0 || node >= size) {
+            throw new IllegalArgumentException("no node " + node + " in an instance of " + size);
+        }
+    }
+
+    // (1/distance)^beta of every edge, flat row-major
+    // the heuristic part never changes for a given beta so it's only computed when beta changes,
+    // runs with the same beta share the array -- it must not be written to
+    synchronized double[] getHeuristicInfo(float beta) {
+        if(heuristicInfo != null && Float.compare(beta, heuristicBeta) == 0) {
+            return heuristicInfo;
+        }
+        double[] info = new double[Math.multiplyExact(size, size)];
+        for(int i = 0; i < size; i++) {
+            for(int j = 0; j < size; j++) {
+                info[i * size + j] = Math.pow(1/(nodeDistances.get(i, j)), beta); // 1/distance
+            }
+        }
+        heuristicInfo = info;
+        heuristicBeta = beta;
+        return info;
+    }
+
+    // same as getHeuristicInfo for the candidate edges, the cth candidate of i is at i * k + c
+    synchronized double[] getCandidateHeuristicInfo(float beta) {
+        if(candidateHeuristicInfo != null && Float.compare(beta, candidateHeuristicBeta) == 0) {
+            return candidateHeuristicInfo;
+        }
+        double[] info = new double[Math.multiplyExact(size, candidateListSize)];
+        for(int i = 0; i < size; i++) {
+            for(int c = 0; c < candidateListSize; c++) {
+                info[i * candidateListSize + c] = Math.pow(1/(nodeDistances.get(i, candidateLists[i][c])), beta); // 1/distance
+            }
+        }
+        candidateHeuristicInfo = info;
+        candidateHeuristicBeta = beta;
+        return info;
+    }
+
+    // size getter
+    public int getSize() {
+        return size;
+    }
+
+    // returns the candidate lists, the nearest neighbours of each node sorted by distance
+    public int[][] getCandidateLists() {
+        return candidateLists;
+    }
+
+    // returns k, the number of candidates of each node
+    public int getCandidateListSize() {
+        return candidateListSize;
+    }
+
+    // returns the nodeLocations array, null when the distances were given explicitly
+    public float[][] getNodeLocations() {
+        return nodeLocations;
+    }
+
+    // returns how the distances were worked out from the node locations, null if they were given
+    public EdgeWeightType getEdgeWeightType() {
+        return edgeWeightType;
+    }
+
+    // true if the distances were given rather than worked out, eg an EDGE_WEIGHT_SECTION
+    public boolean hasExplicitDistances() {
+        return edgeWeightType == null;
+    }
+
+    // returns how the distances are kept
+    public DistanceProvider.Mode getDistanceMode() {
+        return distanceMode;
+    }
+
+    // returns where the edge distances come from
+    public DistanceProvider getNodeDistances() {
+        return nodeDistances;
+    }
+}
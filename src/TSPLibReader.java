@@ -0,0 +1,378 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// reads TSPLIB .tsp files -- the keyword header, then the NODE_COORD_SECTION or EDGE_WEIGHT_SECTION
+// the file is memory mapped and scanned a byte at a time, numbers are parsed where they lie without making
+// strings, so a 100k node file loads in milliseconds
+// supports the EUC_2D, CEIL_2D, GEO and ATT edge weight types and EXPLICIT matrices in every EDGE_WEIGHT_FORMAT
+final class TSPLibReader {
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22}; // exact as doubles
+    private static final int MAX_DIGITS = 18; // digits a long mantissa holds, the rest only move the decimal point
+
+    private final String path; // for the error messages
+    private final MappedByteBuffer buffer;
+    private final int limit;
+    private int position = 0;
+
+    private int dimension = -1;
+    private EdgeWeightType edgeWeightType; // null for EXPLICIT
+    private boolean explicit = false; // EDGE_WEIGHT_TYPE EXPLICIT, the distances are in the EDGE_WEIGHT_SECTION
+    private String edgeWeightFormat = "FULL_MATRIX";
+    private float[][] coordinates; // [node][x, y], from NODE_COORD_SECTION
+    private Matrix weights; // from EDGE_WEIGHT_SECTION
+
+    private TSPLibReader(String path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    // reads the file at path into an instance with the default candidate lists and a full double distance matrix
+    static TSPData read(String path) throws IOException {
+        return read(path, TSP.DEFAULT_CANDIDATES, DistanceProvider.Mode.FULL, Matrix.Storage.DOUBLE);
+    }
+
+    // reads the file at path into an instance, the other arguments are passed on to the TSPData constructor
+    // an EXPLICIT instance always keeps its distances in a matrix of distanceStorage, whatever distanceMode is
+    static TSPData read(String path, int candidateListSize, DistanceProvider.Mode distanceMode,
+                        Matrix.Storage distanceStorage) throws IOException {
+        return read(path, null, candidateListSize, distanceMode, distanceStorage);
+    }
+
+    // as above, but the distances are worked out with edgeWeightType rather than the file's EDGE_WEIGHT_TYPE,
+    // null keeps the file's. only for instances with coordinates
+    static TSPData read(String path, EdgeWeightType edgeWeightType, int candidateListSize,
+                        DistanceProvider.Mode distanceMode, Matrix.Storage distanceStorage) throws IOException {
+        TSPLibReader reader;
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to map: " + channel.size() + " bytes");
+            }
+            // the mapping stays valid after the channel is closed
+            reader = new TSPLibReader(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        reader.parse(distanceStorage);
+
+        if(reader.explicit) {
+            if(edgeWeightType != null) {
+                throw new IOException(path + " has no coordinates to work out " + edgeWeightType + " distances from");
+            }
+            return new TSPData(reader.weights, candidateListSize);
+        }
+        return new TSPData(reader.coordinates, edgeWeightType == null ? reader.edgeWeightType : edgeWeightType,
+                candidateListSize, distanceMode, distanceStorage);
+    }
+
+    // reads keywords until EOF or the end of the file
+    private void parse(Matrix.Storage distanceStorage) throws IOException {
+        while(skipWhitespace()) {
+            String keyword = readKeyword();
+            switch(keyword) {
+                case "NODE_COORD_SECTION":
+                    readNodeCoordinates();
+                    break;
+                case "EDGE_WEIGHT_SECTION":
+                    readEdgeWeights(distanceStorage);
+                    break;
+                case "DISPLAY_DATA_SECTION":
+                    skipNumbers(3L * requireDimension()); // only used for drawing
+                    break;
+                case "FIXED_EDGES_SECTION":
+                case "TOUR_SECTION":
+                    skipUntilMinusOne();
+                    break;
+                case "EOF":
+                    position = limit;
+                    break;
+                default:
+                    readHeader(keyword, readValue());
+                    break;
+            }
+        }
+
+        if(dimension < 0) {
+            throw error("no DIMENSION");
+        }
+        if(edgeWeightType == null && !explicit) {
+            throw error("no EDGE_WEIGHT_TYPE");
+        }
+        if(explicit ? weights == null : coordinates == null) {
+            throw error(explicit ? "no EDGE_WEIGHT_SECTION" : "no NODE_COORD_SECTION");
+        }
+    }
+
+    // a "KEYWORD : value" line
+    private void readHeader(String keyword, String value) throws IOException {
+        switch(keyword) {
+            case "TYPE":
+                if(!value.equals("TSP") && !value.equals("ATSP")) {
+                    throw error("unsupported TYPE " + value);
+                }
+                break;
+            case "DIMENSION":
+                try {
+                    dimension = Integer.parseInt(value);
+                } catch(NumberFormatException e) {
+                    throw error("bad DIMENSION " + value);
+                }
+                if(dimension < 2) {
+                    throw error("DIMENSION must be at least 2: " + dimension);
+                }
+                break;
+            case "EDGE_WEIGHT_TYPE":
+                explicit = value.equals("EXPLICIT");
+                edgeWeightType = explicit ? null : edgeWeightType(value);
+                break;
+            case "EDGE_WEIGHT_FORMAT":
+                edgeWeightFormat = value;
+                break;
+            default:
+                break; // NAME, COMMENT, DISPLAY_DATA_TYPE and the rest don't change the distances
+        }
+    }
+
+    // the supported TSPLIB edge weight types that work the distances out from coordinates
+    private EdgeWeightType edgeWeightType(String value) throws IOException {
+        switch(value) {
+            case "EUC_2D":
+                return EdgeWeightType.EUC_2D;
+            case "CEIL_2D":
+                return EdgeWeightType.CEIL_2D;
+            case "GEO":
+                return EdgeWeightType.GEO;
+            case "ATT":
+                return EdgeWeightType.ATT;
+            default:
+                throw error("unsupported EDGE_WEIGHT_TYPE " + value);
+        }
+    }
+
+    // "i x y" for every node, the nodes can come in any order
+    private void readNodeCoordinates() throws IOException {
+        coordinates = new float[requireDimension()][2];
+        boolean[] seen = new boolean[dimension];
+        for(int n = 0; n < dimension; n++) {
+            int node = readInt() - 1;
+            if(node < 0 || node >= dimension || seen[node]) {
+                throw error("bad node number " + (node + 1));
+            }
+            seen[node] = true;
+            coordinates[node][0] = (float) readNumber();
+            coordinates[node][1] = (float) readNumber();
+        }
+    }
+
+    // the distances in the order EDGE_WEIGHT_FORMAT gives them, the triangular formats are mirrored
+    // a column-wise triangle lists the same numbers as the opposite row-wise one, so they share a case
+    private void readEdgeWeights(Matrix.Storage distanceStorage) throws IOException {
+        weights = Matrix.create(requireDimension(), distanceStorage);
+        switch(edgeWeightFormat) {
+            case "FULL_MATRIX":
+                for(int i = 0; i < dimension; i++) {
+                    for(int j = 0; j < dimension; j++) {
+                        weights.set(i, j, readNumber());
+                    }
+                }
+                return;
+            case "UPPER_ROW":
+            case "LOWER_COL":
+                readTriangle(1, false);
+                return;
+            case "UPPER_DIAG_ROW":
+            case "LOWER_DIAG_COL":
+                readTriangle(0, false);
+                return;
+            case "LOWER_ROW":
+            case "UPPER_COL":
+                readTriangle(1, true);
+                return;
+            case "LOWER_DIAG_ROW":
+            case "UPPER_DIAG_COL":
+                readTriangle(0, true);
+                return;
+            default:
+                throw error("unsupported EDGE_WEIGHT_FORMAT " + edgeWeightFormat);
+        }
+    }
+
+    // row by row, each row from its diagonal to the end (upper) or from the start to its diagonal (lower)
+    // offset 1 leaves the diagonal out
+    private void readTriangle(int offset, boolean lower) throws IOException {
+        for(int i = 0; i < dimension; i++) {
+            int from = lower ? 0 : i + offset;
+            int to = lower ? i - offset : dimension - 1;
+            for(int j = from; j <= to; j++) {
+                double weight = readNumber();
+                weights.set(i, j, weight);
+                weights.set(j, i, weight);
+            }
+        }
+    }
+
+    private int requireDimension() throws IOException {
+        if(dimension < 0) {
+            throw error("section before DIMENSION");
+        }
+        return dimension;
+    }
+
+    // skips spaces, tabs and line ends, returns false at the end of the file
+    private boolean skipWhitespace() {
+        while(position < limit) {
+            byte b = buffer.get(position);
+            if(b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return true;
+            }
+            position++;
+        }
+        return false;
+    }
+
+    // a keyword runs up to whitespace or the ':' that separates it from its value
+    private String readKeyword() {
+        int start = position;
+        while(position < limit) {
+            byte b = buffer.get(position);
+            if(b == ':' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                break;
+            }
+            position++;
+        }
+        return ascii(start, position);
+    }
+
+    // the rest of the line after the keyword and its ':', trimmed
+    private String readValue() {
+        while(position < limit && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) {
+            position++;
+        }
+        if(position < limit && buffer.get(position) == ':') {
+            position++;
+        }
+        int start = position;
+        while(position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        return ascii(start, position).trim();
+    }
+
+    private String ascii(int start, int end) {
+        char[] chars = new char[end - start];
+        for(int i = start; i < end; i++) {
+            chars[i - start] = (char) (buffer.get(i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private int readInt() throws IOException {
+        int start = position;
+        double value = readNumber();
+        if(value != (int) value) {
+            position = start;
+            throw error("expected a whole number");
+        }
+        return (int) value;
+    }
+
+    // a decimal number with an optional sign, fraction and exponent, eg -12, 16.47 or 1.2345e+05
+    private double readNumber() throws IOException {
+        if(!skipWhitespace()) {
+            throw error("unexpected end of file");
+        }
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if(b == '-' || b == '+') {
+            negative = b == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0; // power of ten the mantissa is multiplied by
+        boolean any = false;
+        while(position < limit && (b = buffer.get(position)) >= '0' && b <= '9') {
+            if(digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + (b - '0');
+                if(mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++; // too many digits to keep, they only make the number bigger
+            }
+            any = true;
+            position++;
+        }
+        if(position < limit && buffer.get(position) == '.') {
+            position++;
+            while(position < limit && (b = buffer.get(position)) >= '0' && b <= '9') {
+                if(digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if(mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                }
+                any = true;
+                position++;
+            }
+        }
+        if(!any) {
+            throw error("expected a number");
+        }
+        if(position < limit && ((b = buffer.get(position)) == 'e' || b == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if(position < limit && ((b = buffer.get(position)) == '-' || b == '+')) {
+                negativeExponent = b == '-';
+                position++;
+            }
+            int written = 0;
+            boolean anyExponent = false;
+            while(position < limit && (b = buffer.get(position)) >= '0' && b <= '9') {
+                written = Math.min(written * 10 + (b - '0'), 10000);
+                anyExponent = true;
+                position++;
+            }
+            if(!anyExponent) {
+                throw error("expected an exponent");
+            }
+            exponent += negativeExponent ? -written : written;
+        }
+
+        double value = mantissa;
+        if(exponent < 0) {
+            value = -exponent < POWERS_OF_TEN.length ? value / POWERS_OF_TEN[-exponent] : value * Math.pow(10, exponent);
+        } else if(exponent > 0) {
+            value = exponent < POWERS_OF_TEN.length ? value * POWERS_OF_TEN[exponent] : value * Math.pow(10, exponent);
+        }
+        return negative ? -value : value;
+    }
+
+    private void skipNumbers(long count) throws IOException {
+        for(long n = 0; n < count; n++) {
+            readNumber();
+        }
+    }
+
+    // the FIXED_EDGES_SECTION and TOUR_SECTION end with -1
+    private void skipUntilMinusOne() throws IOException {
+        while(readNumber() != -1) {
+            // nothing to keep
+        }
+    }
+
+    // an IOException that says where in the file the problem is
+    private IOException error(String message) {
+        int line = 1;
+        for(int i = 0; i < Math.min(position, limit); i++) {
+            if(buffer.get(i) == '\n') {
+                line++;
+            }
+        }
+        return new IOException(path + ":" + line + ": " + message);
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.concurrent.TimeUnit;
+
+// decides when a run stops, see AntSystem.solve -- it's asked before every cycle, so a run stops at the first
+// cycle boundary after the policy is met. policies only read the RunProgress so one can be shared by several runs,
+// except stagnation -- its detector sorts into scratch space of its own, so each run needs its own policy
+interface TerminationPolicy {
+    // true if the run should stop now
+    boolean shouldStop(RunProgress progress);
+
+    // stops after a fixed number of cycles, what cycle(numOfCycles) does
+    static TerminationPolicy cycles(final long numOfCycles) {
+        return new TerminationPolicy() {
+            public boolean shouldStop(RunProgress progress) {
+                return progress.getCycles() >= numOfCycles;
+            }
+        };
+    }
+
+    // stops once the run has taken the given wall-clock time -- the cycle that crosses it still finishes
+    static TerminationPolicy timeLimit(long time, TimeUnit unit) {
+        final long nanos = unit.toNanos(time);
+        return new TerminationPolicy() {
+            public boolean shouldStop(RunProgress progress) {
+                return progress.getElapsedNanos() >= nanos;
+            }
+        };
+    }
+
+    // stops once a tour no longer than targetLength is found
+    static TerminationPolicy target(final double targetLength) {
+        return new TerminationPolicy() {
+            public boolean shouldStop(RunProgress progress) {
+                return progress.getBestLength() <= targetLength;
+            }
+        };
+    }
+
+    // stops when the best tour hasn't improved for the given number of cycles
+    static TerminationPolicy noImprovement(final long numOfCycles) {
+        return new TerminationPolicy() {
+            public boolean shouldStop(RunProgress progress) {
+                return progress.getCycles() > 0 && progress.getCyclesSinceImprovement() >= numOfCycles;
+            }
+        };
+    }
+
+    // stops when the tours of the last cycle have stagnated by detector's measure -- not to be shared between runs,
+    // or combined into a policy that is, as the detector isn't safe to use from two threads at once
+    static TerminationPolicy stagnation(final StagnationDetector detector) {
+        return new TerminationPolicy() {
+            public boolean shouldStop(RunProgress progress) {
+                return progress.isStagnated(detector);
+            }
+        };
+    }
+
+    // stops as soon as any of policies would
+    static TerminationPolicy anyOf(TerminationPolicy... policies) {
+        final TerminationPolicy[] all = policies.clone();
+        return new TerminationPolicy() {
+            public boolean shouldStop(RunProgress progress) {
+                for(int i = 0; i < all.length; i++) {
+                    if(all[i].shouldStop(progress)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    // stops only once all of policies would
+    static TerminationPolicy allOf(TerminationPolicy... policies) {
+        final TerminationPolicy[] all = policies.clone();
+        return new TerminationPolicy() {
+            public boolean shouldStop(RunProgress progress) {
+                for(int i = 0; i < all.length; i++) {
+                    if(!all[i].shouldStop(progress)) {
+                        return false;
+                    }
+                }
+                return all.length > 0;
+            }
+        };
+    }
+}
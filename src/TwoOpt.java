@@ -0,0 +1,41 @@
+// 2-opt -- swaps two edges of the tour for the two that reconnect it the other way, which reverses the part
+// in between. from node a with tour neighbour b only the candidates c nearer to a than b are tried, as the
+// new edge a-c has to be shorter than a-b for the move to gain
+class TwoOpt extends NeighbourListSearch {
+    boolean improveNode(int a) {
+        for(int direction = 0; direction < 2; direction++) {
+            boolean forwards = direction == 0;
+            int b = step(a, forwards);
+            double ab = dist.get(a, b);
+
+            int[] candidates = neighbours[a];
+            for(int n = 0; n < candidates.length; n++) {
+                int c = candidates[n];
+                double gain = ab - dist.get(a, c);
+                if(gain <= EPSILON) {
+                    break; // the candidates are sorted by distance so none further on can gain
+                }
+                int d = step(c, forwards);
+                if(c == b || d == a) {
+                    continue;
+                }
+
+                // a-b and c-d become a-c and b-d
+                gain += dist.get(c, d) - dist.get(b, d);
+                if(gain > EPSILON) {
+                    twoOptMove(a, b, c, d);
+                    wake(a);
+                    wake(b);
+                    wake(c);
+                    wake(d);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public LocalSearch newWorker() {
+        return new TwoOpt();
+    }
+}
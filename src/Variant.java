@@ -0,0 +1,46 @@
+// the ant systems a run can use, in the order of Controller's antChoice numbers
+enum Variant {
+    DENSITY("ANT-DENSITY") {
+        double run(TSP tspInstance, float alpha, float beta, float evaporationParam, double pherParam, int numOfCycles, long seed, String randomSource) {
+            AntDensity antDensity = new AntDensity(tspInstance, alpha, beta, evaporationParam, pherParam, seed, randomSource);
+            return antDensity.cycle(numOfCycles);
+        }
+    },
+    QUANTITY("ANT-QUANTITY") {
+        double run(TSP tspInstance, float alpha, float beta, float evaporationParam, double pherParam, int numOfCycles, long seed, String randomSource) {
+            AntQuantity antQuantity = new AntQuantity(tspInstance, alpha, beta, evaporationParam, pherParam, seed, randomSource);
+            return antQuantity.cycle(numOfCycles);
+        }
+    },
+    CYCLE("ANT-CYCLE") {
+        double run(TSP tspInstance, float alpha, float beta, float evaporationParam, double pherParam, int numOfCycles, long seed, String randomSource) {
+            AntCycle antCycle = new AntCycle(tspInstance, alpha, beta, evaporationParam, pherParam, seed, randomSource);
+            return antCycle.cycle(numOfCycles);
+        }
+    },
+    ELITIST("ANT-ELITIST") {
+        double run(TSP tspInstance, float alpha, float beta, float evaporationParam, double pherParam, int numOfCycles, long seed, String randomSource) {
+            AntElitist antElitist = new AntElitist(tspInstance, alpha, beta, evaporationParam, pherParam, seed, randomSource);
+            return antElitist.cycleElite(numOfCycles);
+        }
+    },
+    MAXMIN("ANT-MAXMIN") {
+        double run(TSP tspInstance, float alpha, float beta, float evaporationParam, double pherParam, int numOfCycles, long seed, String randomSource) {
+            AntMaxMin antMaxMin = new AntMaxMin(tspInstance, alpha, beta, evaporationParam, pherParam, seed, randomSource);
+            return antMaxMin.cycleMaxMin(numOfCycles);
+        }
+    };
+
+    private final String title; // heading the results are printed under
+
+    Variant(String title) {
+        this.title = title;
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    // one run of numOfCycles on tspInstance, returns the best tour found
+    abstract double run(TSP tspInstance, float alpha, float beta, float evaporationParam, double pherParam, int numOfCycles, long seed, String randomSource);
+}
@@ -0,0 +1,60 @@
+// xoshiro256** generator -- 256 bits of state, longer period than splitmix64 for long runs with many ants
+public class Xoshiro256 implements RandomSource {
+    private long s0, s1, s2, s3; // the four state words
+
+    // constructor
+    public Xoshiro256(long seed) {
+        setSeed(seed);
+    }
+
+    // the state is filled from a splitmix64 stream of the seed so it's never all zero
+    // done inline because the ants are reseeded every cycle and this shouldn't allocate
+    @Override
+    public void setSeed(long seed) {
+        s0 = SplitMix64.mix(seed += SplitMix64.GOLDEN_GAMMA);
+        s1 = SplitMix64.mix(seed += SplitMix64.GOLDEN_GAMMA);
+        s2 = SplitMix64.mix(seed += SplitMix64.GOLDEN_GAMMA);
+        s3 = SplitMix64.mix(seed + SplitMix64.GOLDEN_GAMMA);
+    }
+
+    @Override
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+
+        return result;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53; // top 53 bits as the fraction
+    }
+
+    @Override
+    public long[] getState() {
+        return new long[] {s0, s1, s2, s3};
+    }
+
+    @Override
+    public void setState(long[] state) {
+        if(state.length != 4) {
+            throw new IllegalArgumentException("xoshiro256** has 4 words of state, not " + state.length);
+        }
+        s0 = state[0];
+        s1 = state[1];
+        s2 = state[2];
+        s3 = state[3];
+    }
+
+    @Override
+    public RandomSource newStream() {
+        return new Xoshiro256(0);
+    }
+}